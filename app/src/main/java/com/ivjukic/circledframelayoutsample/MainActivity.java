@@ -23,7 +23,8 @@ public class MainActivity extends AppCompatActivity {
         textView = findViewById(R.id.textView);
 
         circledFrameLayout = findViewById(R.id.clCircle);
-        circledFrameLayout.setProgressListener(new CircledFrameLayout.ProgressListener() {
+        // one text update per frame at most, instead of one per setProgress call
+        circledFrameLayout.setFrameProgressListener(new CircledFrameLayout.ProgressListener() {
             @Override
             public void onProgressChanged(float progress) {
                 textView.setText(String.format("%.2f", progress));
@@ -0,0 +1,36 @@
+package com.ivjukic.circledframelayout.benchmark;
+
+import com.ivjukic.circledframelayout.core.RingGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ring geometry as computed by measure passes and stroke width animations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeometryBenchmark {
+
+    private final RingGeometry geometry = new RingGeometry();
+    private int frame = 0;
+
+    @Benchmark
+    public float recompute() {
+        // a stroke width animation changes the input on every frame
+        geometry.update(RingGeometry.squareSize(400, 300), 8 + (frame++ & 7));
+        return geometry.getRingRadius();
+    }
+
+    @Benchmark
+    public boolean unchangedMeasure() {
+        return geometry.update(RingGeometry.squareSize(400, 300), 8);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ivjukic.circledframelayout.benchmark;
+
+import com.ivjukic.circledframelayout.core.GestureMath;
+import com.ivjukic.circledframelayout.core.ProgressModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decisions taken per move event and on the release of a long press.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GestureBenchmark {
+
+    private static final int TOUCH_SLOP_SQUARE = 24 * 24;
+
+    private final ProgressModel model = new ProgressModel(0);
+    private float dx;
+    private float dy;
+
+    @Setup
+    public void setUp() {
+        model.set(100, 0, 100);
+        model.set(42, 0, 100);
+    }
+
+    @Benchmark
+    public boolean moveEvent() {
+        dx = (dx + 1.5f) % 40;
+        dy = (dy + 0.5f) % 40;
+        return GestureMath.isOutsideSlop(dx, dy, TOUCH_SLOP_SQUARE);
+    }
+
+    @Benchmark
+    public void release(Blackhole blackhole) {
+        blackhole.consume(model.needsRevert(0, 100));
+        blackhole.consume(model.automaticTarget(0, 100));
+    }
+}
@@ -0,0 +1,42 @@
+package com.ivjukic.circledframelayout.benchmark;
+
+import com.ivjukic.circledframelayout.core.ProgressModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress updates as they happen on every animation frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProgressBenchmark {
+
+    private final ProgressModel model = new ProgressModel(0);
+    private float value = 0;
+
+    // sweeps slightly past both ends so the clamping branches are hit as well
+    private float nextValue() {
+        value += 0.37f;
+        if (value > 110)
+            value = -10;
+        return value;
+    }
+
+    @Benchmark
+    public float setProgress() {
+        return model.set(nextValue(), 0, 100);
+    }
+
+    @Benchmark
+    public float setProgressAndSweepAngle() {
+        return ProgressModel.sweepAngle(model.set(nextValue(), 0, 100), 100);
+    }
+}
@@ -0,0 +1,17 @@
+package com.ivjukic.circledframelayout.core;
+
+/**
+ * Touch decisions of the long press gesture, kept free of Android types.
+ */
+public final class GestureMath {
+
+    private GestureMath() {
+    }
+
+    /**
+     * Compares squared distances, so no square root is taken per move event.
+     */
+    public static boolean isOutsideSlop(float dx, float dy, int touchSlopSquare) {
+        return dx * dx + dy * dy > touchSlopSquare;
+    }
+}
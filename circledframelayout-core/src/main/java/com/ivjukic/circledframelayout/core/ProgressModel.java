@@ -0,0 +1,78 @@
+package com.ivjukic.circledframelayout.core;
+
+/**
+ * Progress state of a circled layout without any Android dependency. Keeps the clamped progress,
+ * the last final progress (min or max) and the final progress before it, and holds the decisions
+ * the long press gesture makes from them.
+ */
+public final class ProgressModel {
+
+    private float progress;
+    private int lastProgress;
+    private int previousProgress;
+
+    public ProgressModel(int minProgress) {
+        this.progress = minProgress;
+        this.lastProgress = minProgress;
+        this.previousProgress = minProgress;
+    }
+
+    /**
+     * Clamps and stores the progress. Reaching min or max records a new last final progress.
+     */
+    public float set(float value, int minProgress, int maxProgress) {
+        if (value <= minProgress) {
+            previousProgress = lastProgress;
+            lastProgress = minProgress;
+            progress = minProgress;
+        } else if (value >= maxProgress) {
+            previousProgress = lastProgress;
+            lastProgress = maxProgress;
+            progress = maxProgress;
+        } else {
+            progress = value;
+        }
+        return progress;
+    }
+
+    /**
+     * Restores a saved state without recording a change of the final progress.
+     */
+    public void restore(float value, int lastValue, int minProgress, int maxProgress) {
+        progress = Math.max(minProgress, Math.min(maxProgress, value));
+        lastProgress = lastValue;
+        previousProgress = lastValue;
+    }
+
+    public float getProgress() {
+        return progress;
+    }
+
+    public int getLastProgress() {
+        return lastProgress;
+    }
+
+    public boolean hasFinalProgressChanged() {
+        return previousProgress != lastProgress;
+    }
+
+    /**
+     * Target of the long press animation, an empty ring fills up and anything else empties.
+     */
+    public float automaticTarget(int minProgress, int maxProgress) {
+        return progress == minProgress ? maxProgress : minProgress;
+    }
+
+    /**
+     * True when a released long press left the ring between the final values, so it has to go back
+     * to the last final progress.
+     */
+    public boolean needsRevert(int minProgress, int maxProgress) {
+        return (progress < maxProgress && lastProgress == maxProgress)
+                || (progress > minProgress && lastProgress == minProgress);
+    }
+
+    public static float sweepAngle(float progress, int maxProgress) {
+        return 360 * progress / maxProgress;
+    }
+}
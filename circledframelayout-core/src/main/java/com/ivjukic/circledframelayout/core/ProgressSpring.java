@@ -0,0 +1,106 @@
+package com.ivjukic.circledframelayout.core;
+
+/**
+ * Damped spring moving a progress value towards a target, with unit mass. Changing the target keeps
+ * the current value and velocity, so a stream of targets animates continuously instead of
+ * restarting. Integration uses fixed sub-steps and never allocates.
+ */
+public final class ProgressSpring {
+
+    public static final float DEFAULT_STIFFNESS = 200f;
+    public static final float DEFAULT_DAMPING_RATIO = 1f;
+
+    // sub-step of the integration, small enough to stay stable for stiff springs
+    private static final float MAX_STEP_SECONDS = 1 / 240f;
+    // longer frame gaps (e.g. after a stall) are not simulated
+    private static final float MAX_FRAME_SECONDS = 0.1f;
+
+    private static final float REST_DISPLACEMENT = 0.05f;
+    private static final float REST_VELOCITY = 0.5f;
+
+    private float stiffness = DEFAULT_STIFFNESS;
+    private float dampingRatio = DEFAULT_DAMPING_RATIO;
+    private float damping;
+    private float value;
+    private float velocity;
+    private float target;
+
+    public ProgressSpring() {
+        updateDamping();
+    }
+
+    public void setStiffness(float stiffness) {
+        this.stiffness = stiffness;
+        updateDamping();
+    }
+
+    /**
+     * A damping ratio of 1 settles without overshoot, lower values bounce around the target.
+     */
+    public void setDampingRatio(float dampingRatio) {
+        this.dampingRatio = dampingRatio;
+        updateDamping();
+    }
+
+    // the damping coefficient depends on both, the ratio is relative to critical damping
+    private void updateDamping() {
+        damping = 2 * dampingRatio * (float) Math.sqrt(stiffness);
+    }
+
+    public float getStiffness() {
+        return stiffness;
+    }
+
+    public float getDampingRatio() {
+        return dampingRatio;
+    }
+
+    /**
+     * Puts the spring at rest on the given value.
+     */
+    public void reset(float value) {
+        this.value = value;
+        this.target = value;
+        this.velocity = 0;
+    }
+
+    public void setTarget(float target) {
+        this.target = target;
+    }
+
+    /**
+     * Advances the spring and returns false once it is at rest, the value is then exactly the target.
+     */
+    public boolean step(float seconds) {
+        seconds = Math.min(seconds, MAX_FRAME_SECONDS);
+        while (seconds > 0) {
+            float dt = Math.min(seconds, MAX_STEP_SECONDS);
+            float acceleration = stiffness * (target - value) - damping * velocity;
+            velocity += acceleration * dt;
+            value += velocity * dt;
+            seconds -= dt;
+        }
+        if (isAtRest()) {
+            value = target;
+            velocity = 0;
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isAtRest() {
+        return Math.abs(target - value) < REST_DISPLACEMENT && Math.abs(velocity) < REST_VELOCITY;
+    }
+
+    public float getValue() {
+        return value;
+    }
+
+    public float getVelocity() {
+        return velocity;
+    }
+
+    public float getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ivjukic.circledframelayout.core;
+
+/**
+ * Square and ring bounds of a circled layout. The ring bounds follow the center line of the
+ * stroke, so the stroke touches the edge of the square. Updates with unchanged input are skipped.
+ */
+public final class RingGeometry {
+
+    private int size = -1;
+    private float strokeWidth = -1;
+
+    private float ringLeft;
+    private float ringTop;
+    private float ringRight;
+    private float ringBottom;
+
+    public static int squareSize(int width, int height) {
+        return Math.min(width, height);
+    }
+
+    /**
+     * Distance the arc endpoint travels along a circle of the given radius when the progress changes
+     * by {@code progressDelta}. Pass the outer edge radius of the stroke, where the endpoint moves
+     * the most.
+     */
+    public static float arcTravel(float progressDelta, float maxProgress, float radius) {
+        return (float) (2 * Math.PI * radius * Math.abs(progressDelta) / maxProgress);
+    }
+
+    /**
+     * Returns false when the size and stroke width are the same as in the last update.
+     */
+    public boolean update(int size, float strokeWidth) {
+        if (size == this.size && strokeWidth == this.strokeWidth)
+            return false;
+        this.size = size;
+        this.strokeWidth = strokeWidth;
+        float halfStroke = strokeWidth / 2;
+        ringLeft = halfStroke;
+        ringTop = halfStroke;
+        ringRight = size - halfStroke;
+        ringBottom = size - halfStroke;
+        return true;
+    }
+
+    public float getRingLeft() {
+        return ringLeft;
+    }
+
+    public float getRingTop() {
+        return ringTop;
+    }
+
+    public float getRingRight() {
+        return ringRight;
+    }
+
+    public float getRingBottom() {
+        return ringBottom;
+    }
+
+    public float getRingRadius() {
+        return (ringRight - ringLeft) / 2;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ivjukic.circledframelayout.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProgressModelTest {
+
+    private static final int MIN = 0;
+    private static final int MAX = 100;
+
+    @Test
+    public void set_clampsToRange() {
+        ProgressModel model = new ProgressModel(MIN);
+        assertEquals(MAX, model.set(150, MIN, MAX), 0);
+        assertEquals(MIN, model.set(-20, MIN, MAX), 0);
+        assertEquals(42.5f, model.set(42.5f, MIN, MAX), 0);
+        assertEquals(42.5f, model.getProgress(), 0);
+    }
+
+    @Test
+    public void set_recordsFinalProgressOnlyAtTheEnds() {
+        ProgressModel model = new ProgressModel(MIN);
+        model.set(50, MIN, MAX);
+        assertEquals(MIN, model.getLastProgress());
+        assertFalse(model.hasFinalProgressChanged());
+
+        model.set(MAX, MIN, MAX);
+        assertEquals(MAX, model.getLastProgress());
+        assertTrue(model.hasFinalProgressChanged());
+
+        model.set(MAX, MIN, MAX);
+        assertFalse(model.hasFinalProgressChanged());
+    }
+
+    @Test
+    public void restore_keepsFinalProgressUnchanged() {
+        ProgressModel model = new ProgressModel(MIN);
+        model.restore(250, MAX, MIN, MAX);
+        assertEquals(MAX, model.getProgress(), 0);
+        assertEquals(MAX, model.getLastProgress());
+        assertFalse(model.hasFinalProgressChanged());
+    }
+
+    @Test
+    public void automaticTarget_fillsEmptyRingAndEmptiesAnythingElse() {
+        ProgressModel model = new ProgressModel(MIN);
+        assertEquals(MAX, model.automaticTarget(MIN, MAX), 0);
+        model.set(30, MIN, MAX);
+        assertEquals(MIN, model.automaticTarget(MIN, MAX), 0);
+        model.set(MAX, MIN, MAX);
+        assertEquals(MIN, model.automaticTarget(MIN, MAX), 0);
+    }
+
+    @Test
+    public void needsRevert_whenReleasedBetweenFinalValues() {
+        ProgressModel model = new ProgressModel(MIN);
+        assertFalse(model.needsRevert(MIN, MAX));
+        model.set(60, MIN, MAX);
+        assertTrue(model.needsRevert(MIN, MAX));
+        model.set(MAX, MIN, MAX);
+        assertFalse(model.needsRevert(MIN, MAX));
+        model.set(60, MIN, MAX);
+        assertTrue(model.needsRevert(MIN, MAX));
+    }
+
+    @Test
+    public void sweepAngle_isProportionalToProgress() {
+        assertEquals(0, ProgressModel.sweepAngle(0, MAX), 0);
+        assertEquals(90, ProgressModel.sweepAngle(25, MAX), 1e-4f);
+        assertEquals(360, ProgressModel.sweepAngle(MAX, MAX), 0);
+    }
+}
@@ -0,0 +1,112 @@
+package com.ivjukic.circledframelayout.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProgressSpringTest {
+
+    private static final float FRAME = 1 / 60f;
+
+    // steps frames until the spring rests and returns the number of frames, or -1 if it never does
+    private static int settle(ProgressSpring spring, int maxFrames) {
+        for (int frame = 1; frame <= maxFrames; frame++) {
+            if (!spring.step(FRAME))
+                return frame;
+        }
+        return -1;
+    }
+
+    @Test
+    public void reset_putsTheSpringAtRest() {
+        ProgressSpring spring = new ProgressSpring();
+        spring.reset(40);
+        assertEquals(40, spring.getValue(), 0);
+        assertEquals(40, spring.getTarget(), 0);
+        assertEquals(0, spring.getVelocity(), 0);
+        assertTrue(spring.isAtRest());
+        assertFalse(spring.step(FRAME));
+    }
+
+    @Test
+    public void step_settlesExactlyOnTheTarget() {
+        ProgressSpring spring = new ProgressSpring();
+        spring.reset(0);
+        spring.setTarget(100);
+        assertTrue(settle(spring, 600) > 0);
+        assertEquals(100, spring.getValue(), 0);
+        assertEquals(0, spring.getVelocity(), 0);
+    }
+
+    @Test
+    public void criticalDamping_doesNotOvershoot() {
+        ProgressSpring spring = new ProgressSpring();
+        spring.reset(0);
+        spring.setTarget(100);
+        for (int frame = 0; frame < 600 && spring.step(FRAME); frame++)
+            assertTrue(spring.getValue() <= 100);
+    }
+
+    @Test
+    public void lowDampingRatio_overshoots() {
+        ProgressSpring spring = new ProgressSpring();
+        spring.setDampingRatio(0.2f);
+        spring.reset(0);
+        spring.setTarget(100);
+        float max = 0;
+        for (int frame = 0; frame < 600 && spring.step(FRAME); frame++)
+            max = Math.max(max, spring.getValue());
+        assertTrue(max > 100);
+    }
+
+    @Test
+    public void setTarget_keepsValueAndVelocity() {
+        ProgressSpring spring = new ProgressSpring();
+        spring.reset(0);
+        spring.setTarget(100);
+        spring.step(FRAME);
+        spring.step(FRAME);
+        float value = spring.getValue();
+        float velocity = spring.getVelocity();
+        spring.setTarget(50);
+        assertEquals(value, spring.getValue(), 0);
+        assertEquals(velocity, spring.getVelocity(), 0);
+    }
+
+    @Test
+    public void stifferSpring_settlesFaster() {
+        ProgressSpring soft = new ProgressSpring();
+        soft.setStiffness(50);
+        soft.reset(0);
+        soft.setTarget(100);
+        ProgressSpring stiff = new ProgressSpring();
+        stiff.setStiffness(800);
+        stiff.reset(0);
+        stiff.setTarget(100);
+        assertTrue(settle(stiff, 600) < settle(soft, 600));
+    }
+
+    @Test
+    public void setters_keepTheirValues() {
+        ProgressSpring spring = new ProgressSpring();
+        assertEquals(ProgressSpring.DEFAULT_STIFFNESS, spring.getStiffness(), 0);
+        assertEquals(ProgressSpring.DEFAULT_DAMPING_RATIO, spring.getDampingRatio(), 0);
+        spring.setStiffness(300);
+        spring.setDampingRatio(0.5f);
+        assertEquals(300, spring.getStiffness(), 0);
+        assertEquals(0.5f, spring.getDampingRatio(), 0);
+    }
+
+    @Test
+    public void longFrameGap_isNotSimulated() {
+        ProgressSpring spring = new ProgressSpring();
+        spring.reset(0);
+        spring.setTarget(100);
+        ProgressSpring reference = new ProgressSpring();
+        reference.reset(0);
+        reference.setTarget(100);
+        spring.step(5);
+        reference.step(0.1f);
+        assertEquals(reference.getValue(), spring.getValue(), 0);
+    }
+}
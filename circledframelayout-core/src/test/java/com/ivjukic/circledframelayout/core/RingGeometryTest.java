@@ -0,0 +1,50 @@
+package com.ivjukic.circledframelayout.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RingGeometryTest {
+
+    @Test
+    public void squareSize_isTheShorterSide() {
+        assertEquals(80, RingGeometry.squareSize(120, 80));
+        assertEquals(60, RingGeometry.squareSize(60, 200));
+        assertEquals(0, RingGeometry.squareSize(0, 50));
+    }
+
+    @Test
+    public void update_insetsTheRingByHalfTheStroke() {
+        RingGeometry geometry = new RingGeometry();
+        assertTrue(geometry.update(100, 10));
+        assertEquals(5, geometry.getRingLeft(), 0);
+        assertEquals(5, geometry.getRingTop(), 0);
+        assertEquals(95, geometry.getRingRight(), 0);
+        assertEquals(95, geometry.getRingBottom(), 0);
+        assertEquals(45, geometry.getRingRadius(), 0);
+    }
+
+    @Test
+    public void update_skipsUnchangedInput() {
+        RingGeometry geometry = new RingGeometry();
+        assertTrue(geometry.update(100, 10));
+        assertFalse(geometry.update(100, 10));
+        assertTrue(geometry.update(100, 12));
+        assertTrue(geometry.update(90, 12));
+        assertEquals(84, geometry.getRingRight(), 0);
+    }
+
+    @Test
+    public void arcTravel_isTheArcLengthOfTheDelta() {
+        // a quarter of the progress moves a quarter of the circumference
+        assertEquals((float) (Math.PI * 50 / 2), RingGeometry.arcTravel(25, 100, 50), 1e-4f);
+        assertEquals(RingGeometry.arcTravel(10, 100, 50), RingGeometry.arcTravel(-10, 100, 50), 0);
+        assertEquals(0, RingGeometry.arcTravel(0, 100, 50), 0);
+    }
+
+    @Test
+    public void arcTravel_growsWithTheRadius() {
+        assertTrue(RingGeometry.arcTravel(0.5f, 100, 200) > RingGeometry.arcTravel(0.5f, 100, 20));
+        assertTrue(RingGeometry.arcTravel(0.1f, 100, 20) < 1);
+    }
+}
@@ -0,0 +1,242 @@
+package com.ivjukic.circledframelayout;
+
+import android.animation.ValueAnimator;
+import android.os.Build;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+/**
+ * Drives the progress and scale animations of many {@link CircledFrameLayout}s from one
+ * {@link Choreographer.FrameCallback}, for screens where hundreds of layouts animate at once. Share
+ * one instance through {@link CircledFrameLayout#setAnimationScheduler(CircledAnimationScheduler)}.
+ *
+ * Animation state lives in primitive arrays indexed by slot. A frame walks the slots once and only
+ * touches layouts whose value changed: progress invalidates the ring, scale only updates the render
+ * node. The callback is not posted while nothing runs. Main thread only.
+ *
+ * Layouts are only registered while attached to a window, so a scheduler outliving an Activity
+ * does not keep its views. Layouts unregistering from a listener during a frame keep their slot
+ * until the frame is done.
+ */
+public final class CircledAnimationScheduler {
+
+    static final int CHANNEL_PROGRESS = 0;
+    static final int CHANNEL_SCALE = 1;
+    private static final int CHANNELS = 2;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private CircledFrameLayout[] layouts = new CircledFrameLayout[DEFAULT_CAPACITY];
+    private int count = 0;
+
+    // per slot and channel, at slot * CHANNELS + channel
+    private boolean[] running = new boolean[DEFAULT_CAPACITY * CHANNELS];
+    private float[] from = new float[DEFAULT_CAPACITY * CHANNELS];
+    private float[] to = new float[DEFAULT_CAPACITY * CHANNELS];
+    // -1 until the first frame after the start
+    private long[] startNanos = new long[DEFAULT_CAPACITY * CHANNELS];
+    private long[] delayNanos = new long[DEFAULT_CAPACITY * CHANNELS];
+    private long[] durationNanos = new long[DEFAULT_CAPACITY * CHANNELS];
+
+    private int runningCount = 0;
+    private boolean frameScheduled = false;
+    // > 0 while layouts are called back, unregistered slots are then only cleared and removed after
+    private int dispatchDepth = 0;
+    private boolean hasRemovedSlots = false;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameScheduled = false;
+            advance(frameTimeNanos);
+            if (runningCount > 0)
+                scheduleFrame();
+        }
+    };
+
+    /**
+     * Returns the slot of the layout.
+     */
+    int register(CircledFrameLayout layout) {
+        if (count == layouts.length) {
+            int capacity = count * 2;
+            layouts = Arrays.copyOf(layouts, capacity);
+            running = Arrays.copyOf(running, capacity * CHANNELS);
+            from = Arrays.copyOf(from, capacity * CHANNELS);
+            to = Arrays.copyOf(to, capacity * CHANNELS);
+            startNanos = Arrays.copyOf(startNanos, capacity * CHANNELS);
+            delayNanos = Arrays.copyOf(delayNanos, capacity * CHANNELS);
+            durationNanos = Arrays.copyOf(durationNanos, capacity * CHANNELS);
+        }
+        layouts[count] = layout;
+        return count++;
+    }
+
+    /**
+     * Drops the running animations of the slot. The last layout moves into the freed slot and is
+     * told its new index, during a frame this is deferred until the frame is done.
+     */
+    void unregister(int slot) {
+        for (int channel = 0; channel < CHANNELS; channel++)
+            cancel(slot, channel);
+
+        if (dispatchDepth > 0) {
+            layouts[slot] = null;
+            hasRemovedSlots = true;
+            return;
+        }
+        removeSlot(slot);
+    }
+
+    private void removeSlot(int slot) {
+        int last = --count;
+        if (slot != last) {
+            layouts[slot] = layouts[last];
+            layouts[slot].onSchedulerSlotMoved(slot);
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                int src = last * CHANNELS + channel;
+                int dst = slot * CHANNELS + channel;
+                running[dst] = running[src];
+                from[dst] = from[src];
+                to[dst] = to[src];
+                startNanos[dst] = startNanos[src];
+                delayNanos[dst] = delayNanos[src];
+                durationNanos[dst] = durationNanos[src];
+                running[src] = false;
+            }
+        }
+        layouts[last] = null;
+    }
+
+    void animate(int slot, int channel, float fromValue, float toValue, long durationMillis, long delayMillis) {
+        int i = slot * CHANNELS + channel;
+        if (!running[i]) {
+            running[i] = true;
+            runningCount++;
+        }
+        float scale = durationScale();
+        from[i] = fromValue;
+        to[i] = toValue;
+        startNanos[i] = -1;
+        delayNanos[i] = (long) (delayMillis * scale * 1000000L);
+        durationNanos[i] = (long) (durationMillis * scale * 1000000L);
+        scheduleFrame();
+    }
+
+    void cancel(int slot, int channel) {
+        int i = slot * CHANNELS + channel;
+        if (!running[i])
+            return;
+        running[i] = false;
+        runningCount--;
+    }
+
+    /**
+     * Applies the target values of the running animations of the slot and stops them.
+     */
+    void finish(int slot) {
+        CircledFrameLayout layout = layouts[slot];
+        int progress = slot * CHANNELS + CHANNEL_PROGRESS;
+        int scale = slot * CHANNELS + CHANNEL_SCALE;
+        boolean finishProgress = running[progress];
+        boolean finishScale = running[scale];
+        float progressTarget = to[progress];
+        float scaleTarget = to[scale];
+        cancel(slot, CHANNEL_PROGRESS);
+        cancel(slot, CHANNEL_SCALE);
+
+        beginDispatch();
+        if (finishProgress) {
+            layout.setProgress(progressTarget);
+            layout.onProgressSettled();
+        }
+        if (finishScale) {
+            layout.setScaleX(scaleTarget);
+            layout.setScaleY(scaleTarget);
+        }
+        endDispatch();
+    }
+
+    private void beginDispatch() {
+        dispatchDepth++;
+    }
+
+    // removes the slots unregistered while layouts were called back, from the end so every slot
+    // moved into a freed one is already checked
+    private void endDispatch() {
+        if (--dispatchDepth > 0 || !hasRemovedSlots)
+            return;
+        hasRemovedSlots = false;
+        for (int slot = count - 1; slot >= 0; slot--) {
+            if (layouts[slot] == null)
+                removeSlot(slot);
+        }
+    }
+
+    boolean isRunning(int slot, int channel) {
+        return running[slot * CHANNELS + channel];
+    }
+
+    float getTarget(int slot, int channel) {
+        return to[slot * CHANNELS + channel];
+    }
+
+    public int getRegisteredCount() {
+        return count;
+    }
+
+    /**
+     * Number of progress and scale animations currently running.
+     */
+    public int getRunningCount() {
+        return runningCount;
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled)
+            return;
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    private void advance(long frameTimeNanos) {
+        beginDispatch();
+        // slots registered during the frame start with the next one
+        for (int i = 0, end = count * CHANNELS; i < end && runningCount > 0; i++) {
+            if (!running[i])
+                continue;
+            if (startNanos[i] < 0)
+                startNanos[i] = frameTimeNanos + delayNanos[i];
+            long elapsed = frameTimeNanos - startNanos[i];
+            if (elapsed < 0)
+                continue;
+
+            float fraction = durationNanos[i] > 0 ? Math.min(1f, elapsed / (float) durationNanos[i]) : 1f;
+            if (fraction >= 1f) {
+                running[i] = false;
+                runningCount--;
+            }
+            // same curve as the default ValueAnimator interpolator
+            float eased = (float) (Math.cos((fraction + 1) * Math.PI) / 2.0f) + 0.5f;
+            float value = from[i] + (to[i] - from[i]) * eased;
+
+            CircledFrameLayout layout = layouts[i / CHANNELS];
+            if (i % CHANNELS == CHANNEL_PROGRESS) {
+                if (value != layout.getProgress())
+                    layout.setProgress(value);
+                if (fraction >= 1f)
+                    layout.onProgressSettled();
+            } else if (value != layout.getScaleX()) {
+                layout.setScaleX(value);
+                layout.setScaleY(value);
+            }
+        }
+        endDispatch();
+    }
+
+    // honours the animator duration scale from the developer options, 0 jumps to the end
+    private static float durationScale() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? ValueAnimator.getDurationScale() : 1f;
+    }
+}
@@ -0,0 +1,219 @@
+package com.ivjukic.circledframelayout;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.os.Trace;
+
+/**
+ * Owns the animators of a {@link CircledFrameLayout}. Every animator is built once per instance and
+ * runs from 0 to 1, the engine maps the fraction onto the layout. Reusing an animator only updates
+ * its bounds and duration, so repeated gestures never allocate new animators, keyframes or listeners.
+ */
+final class CircledAnimatorEngine extends AnimatorListenerAdapter implements ValueAnimator.AnimatorUpdateListener {
+
+    static final int NONE = -1;
+
+    //progress modes
+    static final int PROGRESS_PLAIN = 0;
+    static final int PROGRESS_INTERACTIVE = 1;
+    static final int PROGRESS_REVERT = 2;
+
+    //press modes
+    static final int PRESS_SCALE = 0;
+    static final int PRESS_FAKE_UP = 1;
+    static final int PRESS_FAKE_DOWN = 2;
+    static final int PRESS_FAKE_UP_DOWN = 3;
+
+    private final CircledFrameLayout layout;
+    // animators built by this engine, reported through CircledMetrics
+    private int animatorAllocations;
+
+    // package-private so tests can step animation frames
+    final ValueAnimator progressAnimator;
+    private int progressMode = NONE;
+    private float progressFrom;
+    private float progressTo;
+
+    final ValueAnimator strokeAnimator;
+    private float strokeScaleFrom;
+    private float strokeScaleTo;
+    private float strokeWidthFrom;
+    private float strokeWidthTo;
+
+    final ValueAnimator pressAnimator;
+    private int pressMode = NONE;
+    // set while a press animation replaces a running one, the layer is kept for the new one
+    private boolean pressRestarting = false;
+    private float pressFrom;
+    private float pressTo;
+
+    CircledAnimatorEngine(CircledFrameLayout layout) {
+        this.layout = layout;
+        progressAnimator = newAnimator();
+        strokeAnimator = newAnimator();
+        pressAnimator = newAnimator();
+        progressAnimator.addUpdateListener(this);
+        progressAnimator.addListener(this);
+        strokeAnimator.addUpdateListener(this);
+        pressAnimator.addUpdateListener(this);
+        pressAnimator.addListener(this);
+    }
+
+    void animateProgress(float from, float to, long duration, long delay, int mode) {
+        cancelProgress();
+        progressFrom = from;
+        progressTo = to;
+        progressMode = mode;
+        progressAnimator.setDuration(duration);
+        progressAnimator.setStartDelay(delay);
+        start(progressAnimator, "CircledFrameLayout#progressAnimator");
+    }
+
+    void cancelProgress() {
+        // drop the mode first so a cancel is not reported as a finished animation
+        progressMode = NONE;
+        progressAnimator.cancel();
+    }
+
+    boolean isProgressRunning() {
+        return progressAnimator.isRunning();
+    }
+
+    float getProgressTarget() {
+        return progressTo;
+    }
+
+    void animateStroke(float scaleFrom, float scaleTo, float widthFrom, float widthTo, long duration) {
+        strokeAnimator.cancel();
+        strokeScaleFrom = scaleFrom;
+        strokeScaleTo = scaleTo;
+        strokeWidthFrom = widthFrom;
+        strokeWidthTo = widthTo;
+        strokeAnimator.setDuration(duration);
+        start(strokeAnimator, "CircledFrameLayout#strokeAnimator");
+    }
+
+    /**
+     * Animates scaleX and scaleY. {@link #PRESS_FAKE_UP_DOWN} goes from {@code from} to {@code to}
+     * and back within the same duration. The layout is drawn from a hardware layer while a press
+     * animation runs, so the frames only change the layer transform.
+     */
+    void animatePress(float from, float to, long duration, int mode) {
+        pressRestarting = pressAnimator.isStarted();
+        cancelPress();
+        pressRestarting = false;
+        pressFrom = from;
+        pressTo = to;
+        pressMode = mode;
+        pressAnimator.setDuration(duration);
+        start(pressAnimator, "CircledFrameLayout#pressAnimator");
+    }
+
+    void cancelPress() {
+        pressMode = NONE;
+        pressAnimator.cancel();
+    }
+
+    private static void start(ValueAnimator animator, String section) {
+        final boolean traced = BuildConfig.INSTRUMENTATION && CircledFrameLayout.tracingEnabled;
+        if (traced)
+            Trace.beginSection(section);
+        animator.start();
+        if (traced)
+            Trace.endSection();
+    }
+
+    // every animator of the engine is built here so the count stays honest
+    private ValueAnimator newAnimator() {
+        animatorAllocations++;
+        return ValueAnimator.ofFloat(0f, 1f);
+    }
+
+    int getAnimatorAllocations() {
+        return animatorAllocations;
+    }
+
+    /**
+     * Pauses the running animators, they stay started and hold no frame callbacks.
+     */
+    void pauseAll() {
+        if (progressAnimator.isStarted())
+            progressAnimator.pause();
+        if (strokeAnimator.isStarted())
+            strokeAnimator.pause();
+        if (pressAnimator.isStarted())
+            pressAnimator.pause();
+    }
+
+    /**
+     * Jumps every started animator to its end value. Progress goes first since its end callback may
+     * start the stroke animation, which is then finished as well.
+     */
+    void finishAll() {
+        if (progressAnimator.isStarted())
+            progressAnimator.end();
+        if (strokeAnimator.isStarted())
+            strokeAnimator.end();
+        if (pressAnimator.isStarted())
+            pressAnimator.end();
+    }
+
+    void cancelAll() {
+        cancelProgress();
+        cancelPress();
+        strokeAnimator.cancel();
+    }
+
+    /**
+     * True while the stroke scaling or one of the fake press animations is running, these block
+     * new progress animations.
+     */
+    boolean isScaleRunning() {
+        return strokeAnimator.isRunning() || (pressAnimator.isRunning() && pressMode != PRESS_SCALE);
+    }
+
+    @Override
+    public void onAnimationUpdate(ValueAnimator animation) {
+        float fraction = animation.getAnimatedFraction();
+        if (animation == progressAnimator) {
+            layout.setProgress(progressFrom + (progressTo - progressFrom) * fraction);
+        } else if (animation == strokeAnimator) {
+            float scale = strokeScaleFrom + (strokeScaleTo - strokeScaleFrom) * fraction;
+            layout.setScaleX(scale);
+            layout.setScaleY(scale);
+            layout.setForegroundStrokeWidth(strokeWidthFrom + (strokeWidthTo - strokeWidthFrom) * fraction);
+        } else if (animation == pressAnimator) {
+            if (pressMode == PRESS_FAKE_UP_DOWN)
+                fraction = 1 - Math.abs(2 * fraction - 1);
+            float scale = pressFrom + (pressTo - pressFrom) * fraction;
+            layout.setScaleX(scale);
+            layout.setScaleY(scale);
+        }
+    }
+
+    @Override
+    public void onAnimationStart(Animator animation) {
+        if (animation == progressAnimator) {
+            layout.onProgressAnimationStart(progressMode);
+        } else if (animation == pressAnimator) {
+            layout.beginPressLayer();
+            layout.onPressAnimationStart(pressMode);
+        }
+    }
+
+    @Override
+    public void onAnimationEnd(Animator animation) {
+        if (animation == progressAnimator) {
+            int mode = progressMode;
+            progressMode = NONE;
+            layout.onProgressAnimationEnd(mode);
+        } else if (animation == pressAnimator) {
+            int mode = pressMode;
+            pressMode = NONE;
+            if (!pressRestarting)
+                layout.endPressLayer();
+            layout.onPressAnimationEnd(mode);
+        }
+    }
+}
@@ -1,32 +1,59 @@
 package com.ivjukic.circledframelayout;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
-import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.PointF;
+import android.graphics.RecordingCanvas;
 import android.graphics.RectF;
+import android.graphics.RenderNode;
+import android.graphics.Shader;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.AttributeSet;
-import android.util.TypedValue;
+import android.util.Property;
+import android.view.Choreographer;
 import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewOutlineProvider;
 import android.widget.FrameLayout;
 
 import androidx.annotation.Nullable;
 
+import com.ivjukic.circledframelayout.core.ProgressModel;
+import com.ivjukic.circledframelayout.core.ProgressSpring;
+import com.ivjukic.circledframelayout.core.RingGeometry;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Created by rule on 12/04/16.
+ *
+ * The progress ring is drawn by an internal child view that always stays the last child.
+ *
+ * <p><b>Compatibility:</b> since the ring moved to its own view the child list is not only the added
+ * views. {@link #getChildCount()} is one more than the number of added views and
+ * {@code getChildAt(getChildCount() - 1)} returns the internal ring view. Removing views never removes
+ * it, {@link #removeView(View)} and {@link #removeViewAt(int)} ignore it and range removals stop
+ * before it. A {@link android.animation.LayoutTransition} or layout animation set on the layout
+ * animates the ring like any other child. Code iterating the children should skip the last one.
  */
 public class CircledFrameLayout extends FrameLayout {
 
@@ -53,39 +80,144 @@ public class CircledFrameLayout extends FrameLayout {
     //constants
     public static int MAX_PROGRESS = 100;
     public static int MIN_PROGRESS = 0;
-    private static int PROGRESS_ANIM_DURATION = 1000;
-    private static float DEFAULT_STROKE_WIDTH = 2.0f;
-    private static int DEFAULT_SCALE_DURATION = 150;
-    private static float DEFAULT_SCALE_FACTOR = 1.3f;
-    private static float DEFAULT_FAKE_SCALE_FACTOR = 1.4f;
+    public static final int CLIP_MODE_AUTO = 0;
+    public static final int CLIP_MODE_OUTLINE = 1;
+    public static final int CLIP_MODE_PATH = 2;
+    public static final int RENDER_MODE_DEFAULT = 0;
+    public static final int RENDER_MODE_POWER_SAVER = 1;
+    // instances follow the global render mode until one is set on them
+    private static final int RENDER_MODE_GLOBAL = -1;
+    private static final long POWER_SAVER_REST_DELAY = 150;
+    static int PROGRESS_ANIM_DURATION = 1000;
+    static float DEFAULT_STROKE_WIDTH = 2.0f;
+    static int DEFAULT_SCALE_DURATION = 150;
+    private static int DEFAULT_ANIMATOR_DURATION = 300;
+    private static final float DEFAULT_INVALIDATION_THRESHOLD = 1f;
+    static float DEFAULT_SCALE_FACTOR = 1.3f;
+    static float DEFAULT_FAKE_SCALE_FACTOR = 1.4f;
     private static int DEFAULT_INNER_FILL_COLOR = Color.TRANSPARENT;
+
+    public static final Property<CircledFrameLayout, Float> PROGRESS =
+            new Property<CircledFrameLayout, Float>(Float.class, "progress") {
+                @Override
+                public Float get(CircledFrameLayout layout) {
+                    return layout.getProgress();
+                }
+
+                @Override
+                public void set(CircledFrameLayout layout, Float value) {
+                    layout.setProgress(value);
+                }
+            };
+
+    public static final Property<CircledFrameLayout, Float> FOREGROUND_STROKE_WIDTH =
+            new Property<CircledFrameLayout, Float>(Float.class, "foregroundStrokeWidth") {
+                @Override
+                public Float get(CircledFrameLayout layout) {
+                    return layout.getForegroundStrokeWidth();
+                }
+
+                @Override
+                public void set(CircledFrameLayout layout, Float value) {
+                    layout.setForegroundStrokeWidth(value);
+                }
+            };
+
     private Paint backgroundStrokePaint;
     private Paint foregroundStrokePaint;
     private Paint innerFillPaint;
     private RectF rectF;
     private RectF fullRectF;
     private int startAngle = -90;
+    private final RingGradient foregroundGradient = new RingGradient();
+    private int clipMode = CLIP_MODE_AUTO;
+    private boolean outlineClipping = false;
+    // the app's outline while the circle outline clips, restored when outline clipping ends
+    private ViewOutlineProvider appOutlineProvider;
+    private boolean appClipToOutline;
+
+    //Image mode
+    private Drawable imageDrawable;
+    private Bitmap imageBitmap;
+    private Paint imagePaint;
+    private Matrix imageMatrix = new Matrix();
+
+    //Ring layer
+    private RingView ringView;
+    private boolean drawingRing = false;
+    // progress of the last ring draw, smaller changes than the threshold do not redraw it
+    private float drawnProgress = 0;
+    private float invalidationThreshold = DEFAULT_INVALIDATION_THRESHOLD;
+
+    //Tracks, extra arcs drawn in the same pass as the ring
+    private int trackCount = 0;
+    private Paint[] trackPaints = new Paint[0];
+    private RectF[] trackRects = new RectF[0];
+    private float[] trackInsets = new float[0];
+    private float[] trackStarts = new float[0];
+    private float[] trackProgress = new float[0];
+
+    //Cached content, API 29+
+    private ContentNode contentNode;
+    private boolean contentDirty = true;
+
+    //Published progress, written from any thread and applied once per frame
+    private final AtomicInteger publishedProgressBits = new AtomicInteger();
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    //RecyclerView binding
+    private ProgressStateStore boundStore;
+    private int boundPosition = -1;
+
+    //Instrumentation, compiled out when BuildConfig.INSTRUMENTATION is false
+    static boolean tracingEnabled = false;
+    CircledMetrics metrics;
+
+    //Follow mode, setProgressAnimate retargets one spring instead of starting animators
+    private boolean followMode = false;
+    private final ProgressSpring spring = new ProgressSpring();
+    private boolean springRunning = false;
+    private long springFrameTimeNanos;
+
+    //Shared scheduler, drives plain progress and scaleUp/scaleDown instead of the engine while attached
+    private CircledAnimationScheduler scheduler;
+    // -1 while detached or without a scheduler
+    private int schedulerSlot = -1;
+
+    //Power saver, progress redraws are capped and strokes drop anti-aliasing while moving
+    private static int globalRenderMode = RENDER_MODE_DEFAULT;
+    private static int powerSaverFrameRate = 30;
+    private static boolean powerSaverAntiAlias = false;
+    private int renderMode = RENDER_MODE_GLOBAL;
+    private long lastProgressFrameMillis;
+    private boolean progressFramePosted = false;
+    private long lastMotionMillis;
+    private boolean reducedQuality = false;
+
+    //Suspended while detached or not visible, animations and callbacks are paused
+    private boolean aggregatedVisible = true;
+    private boolean suspended = false;
+
+    //Hardware layer held during press animations, -1 when none is held
+    private int layerTypeBeforePress = -1;
 
     //Private variables
-    ObjectAnimator progressAnimator;
-    AnimatorSet scaleAnimatorSet = new AnimatorSet();
-    AnimatorSet scaleUpAnimatorSet = new AnimatorSet();
-    AnimatorSet scaleDownAnimatorSet = new AnimatorSet();
+    final CircledAnimatorEngine engine = new CircledAnimatorEngine(this);
 
-    private int lastProgress = MIN_PROGRESS;
-    private int previousProgress = MIN_PROGRESS;
+    private final ProgressModel progressModel = new ProgressModel(MIN_PROGRESS);
+    private final RingGeometry ringGeometry = new RingGeometry();
 
 
     //Properties
     protected int backgroundStrokeColor = Color.WHITE;
-    private float backgroundStrokeWidth = Util.pxFromDp(getContext(), DEFAULT_STROKE_WIDTH);
+    private float backgroundStrokeWidth;
 
     protected int foregroundStrokeColor = Color.BLUE;
-    private float foregroundStrokeWidth = Util.pxFromDp(getContext(), DEFAULT_STROKE_WIDTH);
+    private float foregroundStrokeWidth;
 
-    private float initialForegroundStrokeWidth = Util.pxFromDp(getContext(), DEFAULT_STROKE_WIDTH);
+    private float initialForegroundStrokeWidth;
     protected int innerFillColor = DEFAULT_INNER_FILL_COLOR;
-    private float progress = 0;
     private boolean isUserInteractionEnabled = true;
     private boolean justScale = false;
     private boolean isSelected = false;
@@ -94,80 +226,80 @@ public class CircledFrameLayout extends FrameLayout {
     private float scaleFactor = DEFAULT_SCALE_FACTOR;
     private float fakeScaleFactor = DEFAULT_FAKE_SCALE_FACTOR;
     private int progressAnimationDuration = PROGRESS_ANIM_DURATION;
+    private int longPressTimeout = CircledGestureDetector.DEFAULT_LONG_PRESS_TIMEOUT;
 
     private boolean shouldStealLongPressGesture = false;
 
+    CircledGestureDetector gestureDetector;
+    private CircledStyle style;
+
     ProgressAnimationListener progressAnimationListener;
-    ProgressListener progressListener;
+    private final ProgressDispatcher progressDispatcher = new ProgressDispatcher();
 
 
     //Constructor
     public CircledFrameLayout(Context context) {
         super(context);
-        init(context, null);
+        init(context, CircledStyle.obtain(context, 0));
+    }
+
+    public CircledFrameLayout(Context context, CircledStyle style) {
+        super(context);
+        init(context, style);
     }
 
     public CircledFrameLayout(Context context, AttributeSet attrs) {
         super(context, attrs);
-        init(context, attrs);
+        init(context, CircledStyle.from(context, attrs, 0));
     }
 
     public CircledFrameLayout(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        init(context, attrs);
+        init(context, CircledStyle.from(context, attrs, 0));
     }
 
     @TargetApi(Build.VERSION_CODES.LOLLIPOP)
     public CircledFrameLayout(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
         super(context, attrs, defStyleAttr, defStyleRes);
-        init(context, attrs);
+        init(context, CircledStyle.from(context, attrs, defStyleRes));
     }
 
-    private void init(Context context, AttributeSet attrs) {
+    private void init(Context context, CircledStyle style) {
 
         rectF = new RectF();
         fullRectF = new RectF();
-        TypedArray a = context.getTheme().obtainStyledAttributes(
-                attrs,
-                R.styleable.CircledFrameLayout,
-                0, 0);
-
-        try {
-            backgroundStrokeColor = a.getColor(R.styleable.CircledFrameLayout_cfl_background_border_color, Color.WHITE);
-            foregroundStrokeColor = a.getColor(R.styleable.CircledFrameLayout_cfl_foreground_border_color, Color.BLUE);
-            innerFillColor = a.getColor(R.styleable.CircledFrameLayout_cfl_inner_fill_color, Color.TRANSPARENT);
-            backgroundStrokeWidth = a.getDimension(R.styleable.CircledFrameLayout_cfl_background_border_width, Util.pxFromDp(getContext(), DEFAULT_STROKE_WIDTH));
-            foregroundStrokeWidth = a.getDimension(R.styleable.CircledFrameLayout_cfl_foreground_border_width, Util.pxFromDp(getContext(), DEFAULT_STROKE_WIDTH));
-            progressAnimationDuration = a.getInt(R.styleable.CircledFrameLayout_cfl_progress_animation_duration, PROGRESS_ANIM_DURATION);
-            scaleAnimationDuration = a.getInt(R.styleable.CircledFrameLayout_cfl_scale_animation_duration, DEFAULT_SCALE_DURATION);
-            scaleFactor = a.getFloat(R.styleable.CircledFrameLayout_cfl_scale_factor, DEFAULT_SCALE_FACTOR);
-            fakeScaleFactor = a.getFloat(R.styleable.CircledFrameLayout_cfl_fake_scale_factor, DEFAULT_FAKE_SCALE_FACTOR);
-            isUserInteractionEnabled = a.getBoolean(R.styleable.CircledFrameLayout_cfl_user_interaction_enabled, true);
-            initialForegroundStrokeWidth = foregroundStrokeWidth;
-        } finally {
-            a.recycle();
-        }
-
         innerFillPaint = new Paint();
-        innerFillPaint.setColor(innerFillColor);
+        backgroundStrokePaint = new Paint();
+        foregroundStrokePaint = new Paint();
+        gestureDetector = new CircledGestureDetector(this);
+        applyStyle(style);
 
-        backgroundStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        backgroundStrokePaint.setColor(backgroundStrokeColor);
-        backgroundStrokePaint.setStyle(Paint.Style.STROKE);
-        backgroundStrokePaint.setStrokeWidth(backgroundStrokeWidth);
-
-        foregroundStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        foregroundStrokePaint.setColor(foregroundStrokeColor);
-        foregroundStrokePaint.setStyle(Paint.Style.STROKE);
-        foregroundStrokePaint.setStrokeWidth(foregroundStrokeWidth);
-
-        scaleUpAnimatorSet.playTogether(ObjectAnimator.ofFloat(this, "scaleX", 1, scaleFactor),
-                ObjectAnimator.ofFloat(this, "scaleY", 1, scaleFactor));
-        scaleUpAnimatorSet.setDuration(scaleAnimationDuration);
+        ringView = new RingView(context, this);
+        addView(ringView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+    }
 
-        scaleDownAnimatorSet.playTogether(ObjectAnimator.ofFloat(this, "scaleX", scaleFactor, 1),
-                ObjectAnimator.ofFloat(this, "scaleY", scaleFactor, 1));
-        scaleDownAnimatorSet.setDuration(scaleAnimationDuration);
+    private void applyStyle(CircledStyle style) {
+        this.style = style;
+        backgroundStrokeColor = style.backgroundStrokeColor;
+        foregroundStrokeColor = style.foregroundStrokeColor;
+        innerFillColor = style.innerFillColor;
+        backgroundStrokeWidth = style.backgroundStrokeWidth;
+        foregroundStrokeWidth = style.foregroundStrokeWidth;
+        initialForegroundStrokeWidth = foregroundStrokeWidth;
+        progressAnimationDuration = style.progressAnimationDuration;
+        scaleAnimationDuration = style.scaleAnimationDuration;
+        scaleFactor = style.scaleFactor;
+        fakeScaleFactor = style.fakeScaleFactor;
+        isUserInteractionEnabled = style.userInteractionEnabled;
+        clipMode = style.clipMode;
+        longPressTimeout = style.longPressTimeout;
+
+        innerFillPaint.set(style.innerFillPaint);
+        backgroundStrokePaint.set(style.backgroundStrokePaint);
+        foregroundStrokePaint.set(style.foregroundStrokePaint);
+        foregroundGradient.setColors(style.foregroundGradientColors);
+        updateForegroundShader();
+        gestureDetector.setLongPressTimeout(longPressTimeout);
     }
 
     @Override
@@ -180,33 +312,512 @@ public class CircledFrameLayout extends FrameLayout {
         path.reset();
         path.addCircle(halfWidth, halfHeight, Math.min(halfWidth, halfHeight), Path.Direction.CW);
         path.close();
+
+        updateClipping(w, h);
+        updateImageShader(w, h);
+        contentDirty = true;
+    }
+
+    // Outline clipping only works for circles (the view is forced square) and is applied by the
+    // RenderNode, so it is anti-aliased and costs nothing per frame. clipPath stays as a fallback.
+    private void updateClipping(int w, int h) {
+        boolean useOutline = clipMode == CLIP_MODE_OUTLINE || (clipMode == CLIP_MODE_AUTO && w == h);
+        if (useOutline == outlineClipping)
+            return;
+        if (useOutline) {
+            appOutlineProvider = getOutlineProvider();
+            appClipToOutline = getClipToOutline();
+            super.setOutlineProvider(CIRCLE_OUTLINE_PROVIDER);
+            super.setClipToOutline(true);
+        } else {
+            super.setOutlineProvider(appOutlineProvider);
+            super.setClipToOutline(appClipToOutline);
+            appOutlineProvider = null;
+        }
+        outlineClipping = useOutline;
+        invalidateContent();
+    }
+
+    /**
+     * While the layout clips to its circle outline the provider is kept and applied once outline
+     * clipping ends, e.g. in {@link #CLIP_MODE_AUTO} when the view stops being square.
+     */
+    @Override
+    public void setOutlineProvider(ViewOutlineProvider provider) {
+        if (outlineClipping) {
+            appOutlineProvider = provider;
+        } else {
+            super.setOutlineProvider(provider);
+        }
+    }
+
+    /**
+     * Same as {@link #setOutlineProvider(ViewOutlineProvider)}, kept until outline clipping ends.
+     */
+    @Override
+    public void setClipToOutline(boolean clipToOutline) {
+        if (outlineClipping) {
+            appClipToOutline = clipToOutline;
+        } else {
+            super.setClipToOutline(clipToOutline);
+        }
     }
 
+    private static final ViewOutlineProvider CIRCLE_OUTLINE_PROVIDER = new ViewOutlineProvider() {
+        @Override
+        public void getOutline(View view, Outline outline) {
+            int w = view.getWidth();
+            int h = view.getHeight();
+            int min = Math.min(w, h);
+            int left = (w - min) / 2;
+            int top = (h - min) / 2;
+            outline.setOval(left, top, left + min, top + min);
+        }
+    };
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        final boolean traced = BuildConfig.INSTRUMENTATION && tracingEnabled;
+        if (traced)
+            Trace.beginSection("CircledFrameLayout#onMeasure");
+        // settle on the square first so children are measured once, against the size actually used
         final int height = getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec);
         final int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
-        final int min = Math.min(width, height);
-        setMeasuredDimension(min, min);
+        final int min = RingGeometry.squareSize(width, height);
+        final int squareSpec = MeasureSpec.makeMeasureSpec(min, MeasureSpec.EXACTLY);
+        super.onMeasure(squareSpec, squareSpec);
 
-        float strokeWidth = Math.max(backgroundStrokeWidth, foregroundStrokeWidth);
-        rectF.set(0 + strokeWidth / 2, 0 + strokeWidth / 2, min - strokeWidth / 2, min - strokeWidth / 2);
-        fullRectF.set(0, 0, min, min);
+        updateRingGeometry(min, Math.max(backgroundStrokeWidth, foregroundStrokeWidth));
+        if (traced)
+            Trace.endSection();
+    }
+
+    // skipped when neither the size nor the stroke width changed since the last pass
+    private void updateRingGeometry(int size, float strokeWidth) {
+        if (!ringGeometry.update(size, strokeWidth))
+            return;
+        rectF.set(ringGeometry.getRingLeft(), ringGeometry.getRingTop(), ringGeometry.getRingRight(), ringGeometry.getRingBottom());
+        fullRectF.set(0, 0, size, size);
+        updateTrackRects();
+        updateForegroundShader();
+    }
+
+    // the gradient only depends on the ring center, stroke width changes keep the cached shader
+    private void updateForegroundShader() {
+        foregroundStrokePaint.setShader(foregroundGradient.update(rectF.centerX(), rectF.centerY(), startAngle));
+    }
+
+    // tracks are inset from the center line of the main ring
+    private void updateTrackRects() {
+        for (int i = 0; i < trackCount; i++) {
+            trackRects[i].set(rectF);
+            trackRects[i].inset(trackInsets[i], trackInsets[i]);
+        }
+    }
+
+    // Center-crops the image into the circle. Only called on size or image changes so the draw pass
+    // just reuses the shader.
+    private void updateImageShader(int w, int h) {
+        if (imageDrawable != null && imageBitmap == null)
+            imageBitmap = drawableToBitmap(imageDrawable, w, h);
+        if (imageBitmap == null) {
+            if (imagePaint != null)
+                imagePaint.setShader(null);
+            return;
+        }
+        if (imagePaint == null)
+            imagePaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        if (imagePaint.getShader() == null)
+            imagePaint.setShader(new BitmapShader(imageBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+
+        int bitmapWidth = imageBitmap.getWidth();
+        int bitmapHeight = imageBitmap.getHeight();
+        float min = Math.min(w, h);
+        float scale = Math.max(min / bitmapWidth, min / bitmapHeight);
+        imageMatrix.setScale(scale, scale);
+        imageMatrix.postTranslate((w - bitmapWidth * scale) / 2f, (h - bitmapHeight * scale) / 2f);
+        imagePaint.getShader().setLocalMatrix(imageMatrix);
+    }
+
+    private static Bitmap drawableToBitmap(Drawable drawable, int w, int h) {
+        if (drawable instanceof BitmapDrawable)
+            return ((BitmapDrawable) drawable).getBitmap();
+        int width = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : w;
+        int height = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : h;
+        if (width <= 0 || height <= 0)
+            return null;
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+        return bitmap;
     }
 
     @Override
     protected void dispatchDraw(Canvas canvas) {
-        int save = canvas.save();
-        canvas.clipPath(path);
+        final boolean traced = BuildConfig.INSTRUMENTATION && tracingEnabled;
+        final long drawStart = BuildConfig.INSTRUMENTATION && metrics != null ? System.nanoTime() : 0;
+        if (traced)
+            Trace.beginSection("CircledFrameLayout#dispatchDraw");
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            if (contentNode == null)
+                contentNode = new ContentNode();
+            int signature = childVisibilitySignature();
+            if (contentDirty || hasChildAnimation() || !contentNode.isValid(signature))
+                contentNode.record(this, signature);
+            contentDirty = false;
+            contentNode.draw(canvas);
+        } else {
+            drawContent(canvas);
+        }
 
-        canvas.drawOval(fullRectF, innerFillPaint);
-        super.dispatchDraw(canvas);
-        canvas.restoreToCount(save);
+        drawingRing = true;
+        drawChild(canvas, ringView, getDrawingTime());
+        drawingRing = false;
+
+        if (BuildConfig.INSTRUMENTATION && metrics != null)
+            metrics.onDraw(drawStart, engine.getAnimatorAllocations());
+        if (traced)
+            Trace.endSection();
+    }
+
+    private void drawContent(Canvas canvas) {
+        if (imagePaint != null && imagePaint.getShader() != null) {
+            // image mode, the shader already crops to the circle so no clip is needed
+            if (Color.alpha(innerFillColor) != 0)
+                canvas.drawOval(fullRectF, innerFillPaint);
+            canvas.drawCircle(getWidth() / 2f, getHeight() / 2f, Math.min(getWidth(), getHeight()) / 2f, imagePaint);
+            if (getChildCount() > 1)
+                drawClippedContent(canvas, false);
+        } else {
+            drawClippedContent(canvas, true);
+        }
+    }
+
+    // A child going invisible only invalidates the layout itself, so visibility is checked on replay
+    private int childVisibilitySignature() {
+        int signature = 1;
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            View child = getChildAt(i);
+            if (child != ringView)
+                signature = 31 * signature + child.getVisibility();
+        }
+        return signature;
+    }
+
+    // A legacy Animation on a child is stepped in drawChild and asks for its next frame by
+    // invalidating the layout, a replayed node would freeze it after the first frame
+    private boolean hasChildAnimation() {
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            if (getChildAt(i).getAnimation() != null)
+                return true;
+        }
+        return false;
+    }
+
+    // an invalidate from outside may stand for anything, e.g. state read by the children
+    @Override
+    public void invalidate() {
+        contentDirty = true;
+        super.invalidate();
+    }
+
+    private void invalidateContent() {
+        if (BuildConfig.INSTRUMENTATION && metrics != null)
+            metrics.onInvalidate();
+        contentDirty = true;
+        invalidate();
+    }
+
+    @Override
+    public void onDescendantInvalidated(View child, View target) {
+        super.onDescendantInvalidated(child, target);
+        if (target != ringView)
+            contentDirty = true;
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        contentDirty = true;
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        contentDirty = true;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (contentNode != null)
+            contentNode.discard();
+        contentDirty = true;
+        updateSuspended();
+        // the scheduler may outlive the window, it must not keep the view
+        unregisterFromScheduler();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        registerWithScheduler();
+        updateSuspended();
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        aggregatedVisible = isVisible;
+        updateSuspended();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        // onVisibilityAggregated covers this from API 24
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            aggregatedVisible = visibility == VISIBLE;
+            updateSuspended();
+        }
+    }
 
-        float angle = 360 * progress / MAX_PROGRESS;
+    private void updateSuspended() {
+        boolean suspend = !isAttachedToWindow() || !aggregatedVisible;
+        if (suspend == suspended)
+            return;
+        suspended = suspend;
+        if (suspend) {
+            suspendAnimations();
+        } else {
+            resumeAnimations();
+        }
+    }
+
+    // Nothing runs for a hidden view: animators are paused, frame callbacks removed and the pending
+    // long press dropped, a long press that already fired ends as canceled. Shared scheduler
+    // animations are finished right away since the scheduler would otherwise keep ticking for them.
+    // Listener values held back by the dispatcher are delivered last, after every final value was set.
+    private void suspendAnimations() {
+        gestureDetector.abort();
+        flushProgress();
+        engine.pauseAll();
+        if (springRunning)
+            Choreographer.getInstance().removeFrameCallback(springFrameCallback);
+        if (publishScheduled.get()) {
+            mainHandler.removeCallbacks(schedulePublishRunnable);
+            Choreographer.getInstance().removeFrameCallback(publishFrameCallback);
+        }
+        if (schedulerSlot >= 0)
+            scheduler.finish(schedulerSlot);
+        progressDispatcher.flush();
+    }
+
+    // Frames missed while hidden are not replayed, everything jumps to its end state.
+    private void resumeAnimations() {
+        engine.finishAll();
+        if (springRunning) {
+            springRunning = false;
+            float target = spring.getTarget();
+            spring.reset(target);
+            setProgress(target);
+            onProgressSettled();
+        }
+        if (publishScheduled.get())
+            applyPublishedProgress();
+    }
+
+    /**
+     * Records the clipped content (inner fill, image and children) into its own RenderNode. The node
+     * is only re-recorded when a child invalidates or runs an Animation, the layout is invalidated or
+     * the size changes, every other redraw of the layout replays it.
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    private static class ContentNode {
+        private final RenderNode node = new RenderNode("CircledFrameLayoutContent");
+        private int signature;
+
+        boolean isValid(int signature) {
+            return node.hasDisplayList() && this.signature == signature;
+        }
+
+        void record(CircledFrameLayout layout, int signature) {
+            int w = layout.getWidth();
+            int h = layout.getHeight();
+            node.setPosition(0, 0, w, h);
+            RecordingCanvas canvas = node.beginRecording(w, h);
+            try {
+                layout.drawContent(canvas);
+            } finally {
+                node.endRecording();
+            }
+            this.signature = signature;
+        }
+
+        void draw(Canvas canvas) {
+            canvas.drawRenderNode(node);
+        }
+
+        void discard() {
+            node.discardDisplayList();
+        }
+    }
+
+    private void drawRing(Canvas canvas) {
+        // Progress redraws only re-record the ring display list, without a dispatchDraw of the layout,
+        // so the ring pass is measured on its own. Nested in dispatchDraw it is already counted there.
+        final boolean traced = BuildConfig.INSTRUMENTATION && tracingEnabled;
+        final boolean measured = BuildConfig.INSTRUMENTATION && metrics != null && !drawingRing;
+        final long drawStart = measured ? System.nanoTime() : 0;
+        if (traced)
+            Trace.beginSection("CircledFrameLayout#drawRing");
+
+        drawnProgress = getProgress();
+        float angle = ProgressModel.sweepAngle(drawnProgress, MAX_PROGRESS);
         canvas.drawOval(rectF, backgroundStrokePaint);
         canvas.drawArc(rectF, startAngle, angle, false, foregroundStrokePaint);
+
+        for (int i = 0; i < trackCount; i++) {
+            if (trackProgress[i] <= 0)
+                continue;
+            canvas.drawArc(trackRects[i], startAngle + 360 * trackStarts[i] / MAX_PROGRESS,
+                    360 * trackProgress[i] / MAX_PROGRESS, false, trackPaints[i]);
+        }
+
+        if (measured)
+            metrics.onDraw(drawStart, engine.getAnimatorAllocations());
+        if (traced)
+            Trace.endSection();
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        // the ring layer is drawn explicitly after the clipped content
+        if (child == ringView && !drawingRing)
+            return false;
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        contentDirty = true;
+        // the ring uses the same coordinates as the layout, ignoring padding
+        ringView.layout(0, 0, right - left, bottom - top);
+    }
+
+    // The ring layer is always the last child. User children are inserted before it, so they keep
+    // their xml indices, and the remove methods never take the ring out.
+    @Override
+    public void addView(View child, int index, ViewGroup.LayoutParams params) {
+        super.addView(child, indexBeforeRing(child, index), params);
+    }
+
+    @Override
+    protected boolean addViewInLayout(View child, int index, ViewGroup.LayoutParams params, boolean preventRequestLayout) {
+        return super.addViewInLayout(child, indexBeforeRing(child, index), params, preventRequestLayout);
+    }
+
+    private int indexBeforeRing(View child, int index) {
+        if (ringView != null && child != ringView) {
+            int ringIndex = indexOfChild(ringView);
+            if (ringIndex >= 0 && (index < 0 || index > ringIndex))
+                return ringIndex;
+        }
+        return index;
+    }
+
+    /**
+     * Ignores the internal ring view, see the class documentation.
+     */
+    @Override
+    public void removeView(View view) {
+        if (view != ringView)
+            super.removeView(view);
+    }
+
+    @Override
+    public void removeViewInLayout(View view) {
+        if (view != ringView)
+            super.removeViewInLayout(view);
+    }
+
+    /**
+     * Ignores the index of the internal ring view, see the class documentation.
+     */
+    @Override
+    public void removeViewAt(int index) {
+        if (getChildAt(index) != ringView)
+            super.removeViewAt(index);
+    }
+
+    @Override
+    public void removeViews(int start, int count) {
+        super.removeViews(start, countBeforeRing(start, count));
+    }
+
+    @Override
+    public void removeViewsInLayout(int start, int count) {
+        super.removeViewsInLayout(start, countBeforeRing(start, count));
+    }
+
+    @Override
+    public void removeAllViewsInLayout() {
+        // removeAllViews goes through here as well
+        if (ringView == null) {
+            super.removeAllViewsInLayout();
+            return;
+        }
+        super.removeViewsInLayout(0, indexOfChild(ringView));
+    }
+
+    // shortens a removed range so it stops before the ring
+    private int countBeforeRing(int start, int count) {
+        int ringIndex = indexOfChild(ringView);
+        if (ringIndex >= start && start + count > ringIndex)
+            return ringIndex - start;
+        return count;
+    }
+
+    private void invalidateRing() {
+        if (BuildConfig.INSTRUMENTATION && metrics != null)
+            metrics.onInvalidate();
+        ringView.invalidate();
+    }
+
+    /**
+     * Draws the progress ring in its own display list. Progress and stroke changes only invalidate
+     * this view, so the clip, inner fill and children of the layout are not re-recorded while the
+     * ring animates.
+     */
+    private static class RingView extends View {
+        private final CircledFrameLayout layout;
+
+        RingView(Context context, CircledFrameLayout layout) {
+            super(context);
+            this.layout = layout;
+            setImportantForAccessibility(IMPORTANT_FOR_ACCESSIBILITY_NO);
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            layout.drawRing(canvas);
+        }
+    }
+
+    private void drawClippedContent(Canvas canvas, boolean drawInnerFill) {
+        // outline clipping is ignored by software canvases, fall back to the path there
+        boolean clipWithPath = !outlineClipping || !canvas.isHardwareAccelerated();
+        int save = canvas.save();
+        if (clipWithPath)
+            canvas.clipPath(path);
+
+        if (drawInnerFill)
+            canvas.drawOval(fullRectF, innerFillPaint);
+        super.dispatchDraw(canvas);
+        canvas.restoreToCount(save);
     }
 
     @Override
@@ -214,159 +825,105 @@ public class CircledFrameLayout extends FrameLayout {
         super.onDraw(canvas);
     }
 
-    PointF startPoint = new PointF();
-    PointF currentPoint = new PointF();
-    boolean interactionCanceled = false;
-    boolean interactionStarted = false;
-    Handler animHandler = new Handler(Looper.getMainLooper());
-
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         if (isUserInteractionEnabled) {
-            currentPoint.set(event.getX(), event.getY());
-            if (justScale) {
-                if (event.getAction() == MotionEvent.ACTION_DOWN) {
-                    interactionCanceled = false;
-                    startPoint.set(event.getX(), event.getY());
-                    scaleIfNeeded();
-                } else if (event.getAction() == MotionEvent.ACTION_UP) {
-                    interactionCanceled = true;
-                    animHandler.removeCallbacksAndMessages(null);
-                    if (progressAnimationListener != null && interactionStarted) {
-                        progressAnimationListener.onDisabledActionEnd();
-                        interactionStarted = false;
-                    }
-                    //
-                } else if (event.getAction() == MotionEvent.ACTION_CANCEL) {
-                    animHandler.removeCallbacksAndMessages(null);
-                    interactionCanceled = true;
-                    if (interactionStarted) {
-                        if (progressAnimationListener != null)
-                            progressAnimationListener.onDisabledActionCanceled();
-                        scaleDownFake();
-                        interactionStarted = false;
-                    }
-                }
-
-            } else {
-                if (event.getAction() == MotionEvent.ACTION_DOWN) {
-                    interactionCanceled = false;
-                    startPoint.set(event.getX(), event.getY());
-                    scaleIfNeeded();
-                } else if (event.getAction() == MotionEvent.ACTION_UP) {
-                    interactionCanceled = true;
-                    animHandler.removeCallbacksAndMessages(null);
-                    if (interactionStarted) {
-                        if (this.progress < MAX_PROGRESS && this.lastProgress == MAX_PROGRESS)
-                            revertToLastFinalProgress();
-                        else if (this.progress > MIN_PROGRESS && this.lastProgress == MIN_PROGRESS)
-                            revertToLastFinalProgress();
-                        interactionStarted = false;
-                    }
-                }
-                if (event.getAction() == MotionEvent.ACTION_CANCEL) {
-                    interactionCanceled = true;
-                    animHandler.removeCallbacksAndMessages(null);
-                    if (interactionStarted) {
-                        if (this.progress < MAX_PROGRESS && this.lastProgress == MAX_PROGRESS)
-                            revertToLastFinalProgress();
-                        else if (this.progress > MIN_PROGRESS && this.lastProgress == MIN_PROGRESS)
-                            revertToLastFinalProgress();
-                        interactionStarted = false;
-                    }
-                }
-            }
-            return !interactionCanceled;
+            return gestureDetector.onTouchEvent(event);
         }
         return false;
     }
 
-    private void scaleIfNeeded() {
-        animHandler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (interactionCanceled)
-                    return;
-                if (Math.sqrt(Math.pow(currentPoint.x - startPoint.x, 2) + Math.pow(currentPoint.y - startPoint.y, 2)) > Util.pxFromDp(getContext(), 20)) {
-                    return;
-                }
-                interactionStarted = true;
-                if (justScale) {
-                    scaleUpFake();
-                } else {
-                    animateProgressAutomatically();
-                }
-            }
-        }, 500);
+    void onLongPress() {
+        if (justScale) {
+            scaleUpFake();
+        } else {
+            animateProgressAutomatically();
+        }
     }
 
-
+    void onLongPressEnd(boolean canceled) {
+        if (justScale) {
+            if (canceled) {
+                if (progressAnimationListener != null)
+                    progressAnimationListener.onDisabledActionCanceled();
+                scaleDownFake();
+            } else if (progressAnimationListener != null) {
+                progressAnimationListener.onDisabledActionEnd();
+            }
+        } else if (canceled && suspended && isProgressAnimating()) {
+            // the view was hidden mid toggle, the toggle is not completed for the user
+            revertToLastFinalProgress();
+        } else {
+            if (progressModel.needsRevert(MIN_PROGRESS, MAX_PROGRESS))
+                revertToLastFinalProgress();
+        }
+    }
 
     public void scaleUp() {
-        if (scaleUpAnimatorSet.isRunning())
-            scaleUpAnimatorSet.cancel();
-        scaleUpAnimatorSet.start();
+        if (schedulerSlot >= 0 && !suspended) {
+            engine.cancelPress();
+            scheduler.animate(schedulerSlot, CircledAnimationScheduler.CHANNEL_SCALE, getScaleX(), scaleFactor, scaleAnimationDuration, 0);
+            return;
+        }
+        engine.animatePress(1, scaleFactor, scaleAnimationDuration, CircledAnimatorEngine.PRESS_SCALE);
+        finishIfSuspended();
     }
 
     public void scaleDown() {
-        if (scaleDownAnimatorSet.isRunning())
-            scaleDownAnimatorSet.cancel();
-        scaleDownAnimatorSet.start();
+        if (schedulerSlot >= 0 && !suspended) {
+            engine.cancelPress();
+            scheduler.animate(schedulerSlot, CircledAnimationScheduler.CHANNEL_SCALE, getScaleX(), 1, scaleAnimationDuration, 0);
+            return;
+        }
+        engine.animatePress(scaleFactor, 1, scaleAnimationDuration, CircledAnimatorEngine.PRESS_SCALE);
+        finishIfSuspended();
+    }
+
+    // a hidden view has nothing to show, animations started on it jump to their end state and still
+    // report to their listeners
+    private void finishIfSuspended() {
+        if (suspended)
+            engine.finishAll();
+    }
+
+    // true while the engine or the shared scheduler animates the progress
+    private boolean isProgressAnimating() {
+        return engine.isProgressRunning()
+                || (schedulerSlot >= 0 && scheduler.isRunning(schedulerSlot, CircledAnimationScheduler.CHANNEL_PROGRESS));
     }
 
     private void animateProgressAutomatically() {
-        if ((progressAnimator != null && progressAnimator.isRunning()) || (scaleAnimatorSet != null && scaleAnimatorSet.isRunning()))
+        if (isProgressAnimating() || engine.isScaleRunning())
             return;
 
-        float finalProgress;
-        if (this.progress == MIN_PROGRESS) {
-            finalProgress = MAX_PROGRESS;
-        } else {
-            finalProgress = MIN_PROGRESS;
-        }
-
-        progressAnimator = ObjectAnimator.ofFloat(this, "progress", progress, finalProgress);
-        progressAnimator.setDuration(progressAnimationDuration);
-        progressAnimator.addListener(animatorListenerAdapter);
-        progressAnimator.start();
+        float finalProgress = progressModel.automaticTarget(MIN_PROGRESS, MAX_PROGRESS);
+        stopFollow();
+        engine.animateProgress(getProgress(), finalProgress, progressAnimationDuration, 0, CircledAnimatorEngine.PROGRESS_INTERACTIVE);
     }
 
     public void animateProgress(int from, int to, long duration) {
-        if ((progressAnimator != null && progressAnimator.isRunning()) || (scaleAnimatorSet != null && scaleAnimatorSet.isRunning()))
+        if (isProgressAnimating() || engine.isScaleRunning())
             return;
-        progressAnimator = ObjectAnimator.ofFloat(this, "progress", from, to);
-        progressAnimator.setDuration(duration);
-        progressAnimator.addListener(animatorListenerAdapter);
-        progressAnimator.start();
+        stopFollow();
+        engine.animateProgress(from, to, duration, 0, CircledAnimatorEngine.PROGRESS_INTERACTIVE);
+        finishIfSuspended();
     }
 
     private void revertToLastFinalProgress() {
-        if (progressAnimator != null) {
-            progressAnimator.removeAllListeners();
-            progressAnimator.cancel();
-        }
-        progressAnimator = ObjectAnimator.ofFloat(this, "progress", progress, lastProgress);
-        progressAnimator.addListener(cancelListenerAdapter);
-        progressAnimator.start();
+        stopFollow();
+        engine.animateProgress(getProgress(), progressModel.getLastProgress(), DEFAULT_ANIMATOR_DURATION, 0, CircledAnimatorEngine.PROGRESS_REVERT);
     }
 
     private void startScaling() {
         float deltaWidth = initialForegroundStrokeWidth / 3.f;
-        scaleAnimatorSet.playTogether(ObjectAnimator.ofFloat(this, "scaleX", 1, 1.1f),
-                ObjectAnimator.ofFloat(this, "scaleY", 1, 1.1f),
-                ObjectAnimator.ofFloat(this, "foregroundStrokeWidth", initialForegroundStrokeWidth,
-                        initialForegroundStrokeWidth + deltaWidth));
-        scaleAnimatorSet.start();
+        engine.animateStroke(1, 1.1f, initialForegroundStrokeWidth, initialForegroundStrokeWidth + deltaWidth,
+                DEFAULT_ANIMATOR_DURATION);
     }
 
     private void stopScaling() {
         float deltaWidth = initialForegroundStrokeWidth / 3.f;
-        scaleAnimatorSet.playTogether(ObjectAnimator.ofFloat(this, "scaleX", 1.1f, 1f),
-                ObjectAnimator.ofFloat(this, "scaleY", 1.1f, 1f),
-                ObjectAnimator.ofFloat(this, "foregroundStrokeWidth", initialForegroundStrokeWidth + deltaWidth,
-                        initialForegroundStrokeWidth));
-
-        scaleAnimatorSet.start();
+        engine.animateStroke(1.1f, 1, initialForegroundStrokeWidth + deltaWidth, initialForegroundStrokeWidth,
+                DEFAULT_ANIMATOR_DURATION);
     }
 
     public void scaleDownInstantly() {
@@ -375,95 +932,90 @@ public class CircledFrameLayout extends FrameLayout {
     }
 
     private void scaleUpFake() {
-        scaleAnimatorSet = new AnimatorSet();
-        scaleAnimatorSet.playTogether(ObjectAnimator.ofFloat(this, "scaleX", 1, fakeScaleFactor),
-                ObjectAnimator.ofFloat(this, "scaleY", 1, fakeScaleFactor));
-        scaleAnimatorSet.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-
-            }
-
-            @Override
-            public void onAnimationStart(Animator animation) {
-                super.onAnimationStart(animation);
-                if (progressAnimationListener != null)
-                    progressAnimationListener.onDisabledActionStart();
-            }
-        });
-        scaleAnimatorSet.start();
+        engine.animatePress(1, fakeScaleFactor, DEFAULT_ANIMATOR_DURATION, CircledAnimatorEngine.PRESS_FAKE_UP);
     }
 
     private void scaleDownFake() {
-        scaleAnimatorSet = new AnimatorSet();
-        scaleAnimatorSet.playTogether(ObjectAnimator.ofFloat(this, "scaleX", fakeScaleFactor, 1),
-                ObjectAnimator.ofFloat(this, "scaleY", fakeScaleFactor, 1));
-        scaleAnimatorSet.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-            }
-
-            @Override
-            public void onAnimationStart(Animator animation) {
-                super.onAnimationStart(animation);
-            }
-        });
-        scaleAnimatorSet.start();
+        engine.animatePress(fakeScaleFactor, 1, DEFAULT_ANIMATOR_DURATION, CircledAnimatorEngine.PRESS_FAKE_DOWN);
     }
 
     private void scaleUpDown() {
-        scaleAnimatorSet = new AnimatorSet();
-        scaleAnimatorSet.playTogether(ObjectAnimator.ofFloat(this, "scaleX", 1, fakeScaleFactor, 1),
-                ObjectAnimator.ofFloat(this, "scaleY", 1, fakeScaleFactor, 1));
-        scaleAnimatorSet.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
-                if (progressAnimationListener != null)
-                    progressAnimationListener.onDisabledActionStart();
-            }
-        });
-        scaleAnimatorSet.start();
+        engine.animatePress(1, fakeScaleFactor, DEFAULT_ANIMATOR_DURATION, CircledAnimatorEngine.PRESS_FAKE_UP_DOWN);
     }
 
-    AnimatorListenerAdapter animatorListenerAdapter = new AnimatorListenerAdapter() {
-        @Override
-        public void onAnimationStart(Animator animation) {
-            super.onAnimationStart(animation);
-            if (progressAnimationListener != null)
-                progressAnimationListener.onAnimationStart();
-            startScaling();
+    // Same as ViewPropertyAnimator#withLayer: the ring and the clipped content are rasterized once
+    // and the press frames only scale the layer. Software rendered views keep drawing directly, a
+    // software layer would allocate a bitmap per press.
+    void beginPressLayer() {
+        if (layerTypeBeforePress != -1 || !isHardwareAccelerated())
+            return;
+        layerTypeBeforePress = getLayerType();
+        if (layerTypeBeforePress != LAYER_TYPE_HARDWARE) {
+            setLayerType(LAYER_TYPE_HARDWARE, null);
+            if (isAttachedToWindow())
+                buildLayer();
         }
+    }
 
-        @Override
-        public void onAnimationEnd(Animator animation) {
-            super.onAnimationEnd(animation);
-            if (progressAnimationListener != null)
-                progressAnimationListener.onAnimationEnd(lastProgress, previousProgress != lastProgress);
-            stopScaling();
-        }
-    };
+    void endPressLayer() {
+        if (layerTypeBeforePress == -1)
+            return;
+        if (layerTypeBeforePress != LAYER_TYPE_HARDWARE)
+            setLayerType(layerTypeBeforePress, null);
+        layerTypeBeforePress = -1;
+    }
 
-    AnimatorListenerAdapter cancelListenerAdapter = new AnimatorListenerAdapter() {
-        @Override
-        public void onAnimationEnd(Animator animation) {
-            super.onAnimationEnd(animation);
-            if (progressAnimationListener != null)
-                progressAnimationListener.onAnimationEnd(lastProgress, previousProgress != lastProgress);
-            progressAnimator.removeAllListeners();
-            stopScaling();
-        }
-    };
+    // Animator callbacks, dispatched by the engine with the mode the animation was started with
 
-    private static class Util {
-        static float pxFromDp(Context context, float dp) {
-            return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, context.getResources().getDisplayMetrics());
-        }
+    void onProgressAnimationStart(int mode) {
+        if (mode != CircledAnimatorEngine.PROGRESS_INTERACTIVE)
+            return;
+        if (progressAnimationListener != null)
+            progressAnimationListener.onAnimationStart();
+        startScaling();
+    }
+
+    void onProgressAnimationEnd(int mode) {
+        // a canceled animation is replaced or dropped, e.g. by bind(), it has not settled
+        if (mode == CircledAnimatorEngine.NONE)
+            flushProgress();
+        else
+            onProgressSettled();
+        if (mode != CircledAnimatorEngine.PROGRESS_INTERACTIVE && mode != CircledAnimatorEngine.PROGRESS_REVERT)
+            return;
+        if (progressAnimationListener != null)
+            progressAnimationListener.onAnimationEnd(progressModel.getLastProgress(), progressModel.hasFinalProgressChanged());
+        stopScaling();
+    }
+
+    void onPressAnimationStart(int mode) {
+        if (mode == CircledAnimatorEngine.PRESS_FAKE_UP && progressAnimationListener != null)
+            progressAnimationListener.onDisabledActionStart();
+    }
+
+    void onPressAnimationEnd(int mode) {
+        if (mode == CircledAnimatorEngine.PRESS_FAKE_UP_DOWN && progressAnimationListener != null)
+            progressAnimationListener.onDisabledActionStart();
     }
 
     //SETTERS & GETTERS
+    /**
+     * Applies a shared style, replacing colors, stroke widths, durations and scale factors set so far.
+     */
+    public void setStyle(CircledStyle style) {
+        applyStyle(style);
+        if (isSelected)
+            setSelected(true);
+        updateClipping(getWidth(), getHeight());
+        requestLayout();
+        invalidateContent();
+        invalidateRing();
+    }
+
+    public CircledStyle getStyle() {
+        return style;
+    }
+
     public void setJustScale(boolean justScale) {
         this.justScale = justScale;
     }
@@ -474,13 +1026,15 @@ public class CircledFrameLayout extends FrameLayout {
 
     public void setUserInteractionEnabled(boolean isUserInteractionEnabled) {
         this.isUserInteractionEnabled = isUserInteractionEnabled;
+        if (!isUserInteractionEnabled)
+            gestureDetector.cancel();
     }
 
     @Override
     public void setSelected(boolean selected) {
         isSelected = selected;
         if(isSelected){
-            if (progress >= MAX_PROGRESS){
+            if (getProgress() >= MAX_PROGRESS){
                 this.innerFillColor = foregroundStrokeColor;
             }else {
                 this.innerFillColor = backgroundStrokeColor;
@@ -489,7 +1043,7 @@ public class CircledFrameLayout extends FrameLayout {
             this.innerFillColor = DEFAULT_INNER_FILL_COLOR;
         }
         innerFillPaint.setColor(this.innerFillColor);
-        invalidate();
+        invalidateContent();
     }
 
     @Override
@@ -497,8 +1051,52 @@ public class CircledFrameLayout extends FrameLayout {
         return isSelected;
     }
 
+    public void setClipMode(int clipMode) {
+        this.clipMode = clipMode;
+        updateClipping(getWidth(), getHeight());
+    }
+
+    public int getClipMode() {
+        return clipMode;
+    }
+
+    /**
+     * Draws the bitmap cropped to the circle instead of wrapping an ImageView child. Pass null to
+     * leave image mode.
+     */
+    public void setImageBitmap(@Nullable Bitmap bitmap) {
+        setImageDrawable(bitmap != null ? new BitmapDrawable(getResources(), bitmap) : null);
+    }
+
+    public void setImageDrawable(@Nullable Drawable drawable) {
+        if (imageDrawable == drawable)
+            return;
+        imageDrawable = drawable;
+        imageBitmap = null;
+        if (imagePaint != null)
+            imagePaint.setShader(null);
+        updateImageShader(getWidth(), getHeight());
+        invalidateContent();
+    }
+
+    @Nullable
+    public Drawable getImageDrawable() {
+        return imageDrawable;
+    }
+
+    public void setLongPressTimeout(int longPressTimeout) {
+        this.longPressTimeout = longPressTimeout;
+        gestureDetector.setLongPressTimeout(longPressTimeout);
+    }
+
+    public int getLongPressTimeout() {
+        return longPressTimeout;
+    }
+
     public void setStartAngle(int startAngle) {
         this.startAngle = startAngle;
+        updateForegroundShader();
+        invalidateRing();
     }
 
     public void setProgressAnimationDuration(int progressAnimationDuration) {
@@ -520,33 +1118,52 @@ public class CircledFrameLayout extends FrameLayout {
     public void setBackgroundStrokeColor(int backgroundStrokeColor) {
         this.backgroundStrokeColor = backgroundStrokeColor;
         backgroundStrokePaint.setColor(backgroundStrokeColor);
-        invalidate();
+        invalidateRing();
     }
 
     public void setInnerFillColor(int innerFillColor) {
         this.innerFillColor = innerFillColor;
         innerFillPaint.setColor(this.innerFillColor);
-        invalidate();
+        invalidateContent();
     }
 
     public void setForegroundStrokeColor(int foregroundStrokeColor) {
         this.foregroundStrokeColor = foregroundStrokeColor;
         foregroundStrokePaint.setColor(foregroundStrokeColor);
-        invalidate();
+        invalidateRing();
+    }
+
+    /**
+     * Draws the foreground arc with a sweep gradient starting at the start angle, null removes it.
+     * While a gradient is set only the alpha of the foreground color is used.
+     */
+    public void setForegroundGradient(@Nullable int... colors) {
+        foregroundGradient.setColors(colors);
+        updateForegroundShader();
+        invalidateRing();
+    }
+
+    public boolean hasForegroundGradient() {
+        return foregroundGradient.isEnabled();
     }
 
     public void setBackgroundStrokeWidth(float backgroundStrokeWidth) {
         this.backgroundStrokeWidth = backgroundStrokeWidth;
         this.backgroundStrokePaint.setStrokeWidth(backgroundStrokeWidth);
-        invalidate();
+        updateRingGeometry(RingGeometry.squareSize(getWidth(), getHeight()), Math.max(backgroundStrokeWidth, foregroundStrokeWidth));
+        invalidateRing();
     }
 
     public void setForegroundStrokeWidth(float foregroundStrokeWidth) {
-        final int min = Math.min(getWidth(), getHeight());
+        final int min = RingGeometry.squareSize(getWidth(), getHeight());
         this.foregroundStrokeWidth = foregroundStrokeWidth;
-        rectF.set(0 + foregroundStrokeWidth / 2, 0 + foregroundStrokeWidth / 2, min - foregroundStrokeWidth / 2, min - foregroundStrokeWidth / 2);
+        updateRingGeometry(min, Math.max(backgroundStrokeWidth, foregroundStrokeWidth));
         foregroundStrokePaint.setStrokeWidth(foregroundStrokeWidth);
-        invalidate();
+        invalidateRing();
+    }
+
+    public float getForegroundStrokeWidth() {
+        return foregroundStrokeWidth;
     }
 
     public void setInitialForegroundStrokeWidth(float initialForegroundStrokeWidth) {
@@ -554,46 +1171,533 @@ public class CircledFrameLayout extends FrameLayout {
     }
 
     public float getProgress() {
-        return progress;
+        return progressModel.getProgress();
+    }
+
+    /**
+     * Adds an extra arc drawn together with the ring, e.g. a concentric quota ring or one segment of
+     * a chunked upload. The inset is measured from the center line of the main ring towards the
+     * center. Returns the index of the track.
+     */
+    public int addTrack(int color, float width, float inset) {
+        if (trackCount == trackPaints.length) {
+            int capacity = Math.max(4, trackCount * 2);
+            trackPaints = Arrays.copyOf(trackPaints, capacity);
+            trackRects = Arrays.copyOf(trackRects, capacity);
+            trackInsets = Arrays.copyOf(trackInsets, capacity);
+            trackStarts = Arrays.copyOf(trackStarts, capacity);
+            trackProgress = Arrays.copyOf(trackProgress, capacity);
+        }
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(width);
+
+        int index = trackCount++;
+        trackPaints[index] = paint;
+        trackRects[index] = new RectF();
+        trackInsets[index] = inset;
+        trackStarts[index] = MIN_PROGRESS;
+        trackProgress[index] = MIN_PROGRESS;
+        updateTrackRects();
+        return index;
+    }
+
+    public void setTrackProgress(int index, float progress) {
+        checkTrackIndex(index);
+        float clamped = Math.max(MIN_PROGRESS, Math.min(MAX_PROGRESS, progress));
+        if (trackProgress[index] == clamped)
+            return;
+        trackProgress[index] = clamped;
+        invalidateRing();
+    }
+
+    public float getTrackProgress(int index) {
+        checkTrackIndex(index);
+        return trackProgress[index];
+    }
+
+    /**
+     * Moves the beginning of a track, in progress units after the start angle. Segmented arcs use
+     * one track per segment with the same inset.
+     */
+    public void setTrackStart(int index, float start) {
+        checkTrackIndex(index);
+        trackStarts[index] = start;
+        invalidateRing();
+    }
+
+    public void setTrackColor(int index, int color) {
+        checkTrackIndex(index);
+        trackPaints[index].setColor(color);
+        invalidateRing();
+    }
+
+    // the arrays have spare capacity, only indices returned by addTrack are valid
+    private void checkTrackIndex(int index) {
+        if (index < 0 || index >= trackCount)
+            throw new IndexOutOfBoundsException("Track index " + index + ", track count " + trackCount);
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    public void clearTracks() {
+        Arrays.fill(trackPaints, null);
+        Arrays.fill(trackRects, null);
+        trackCount = 0;
+        invalidateRing();
     }
 
     public void setProgress(float progress) {
-        if (progress <= MIN_PROGRESS) {
-            previousProgress = lastProgress;
-            lastProgress = MIN_PROGRESS;
-            this.progress = MIN_PROGRESS;
-        } else if (progress >= MAX_PROGRESS) {
-            previousProgress = lastProgress;
-            lastProgress = MAX_PROGRESS;
-            this.progress = MAX_PROGRESS;
-        }else {
-            this.progress = progress;
+        progressModel.set(progress, MIN_PROGRESS, MAX_PROGRESS);
+        progressDispatcher.onProgressChanged(progress, progress <= MIN_PROGRESS || progress >= MAX_PROGRESS);
+        float current = getProgress();
+        if (current <= MIN_PROGRESS || current >= MAX_PROGRESS)
+            invalidateRing();
+        else if (movesArcEndpoint(current))
+            invalidateProgress();
+    }
+
+    private boolean isPowerSaving() {
+        return (renderMode == RENDER_MODE_GLOBAL ? globalRenderMode : renderMode) == RENDER_MODE_POWER_SAVER;
+    }
+
+    // In power saver the ring is redrawn at most powerSaverFrameRate times a second, a change within
+    // the interval is drawn by one delayed runnable together with every later one.
+    private void invalidateProgress() {
+        if (!isPowerSaving()) {
+            invalidateRing();
+            return;
         }
-        if (progressListener != null){
-            progressListener.onProgressChanged(progress);
+        long now = SystemClock.uptimeMillis();
+        if (!powerSaverAntiAlias)
+            reduceQuality(now);
+        if (progressFramePosted)
+            return;
+        long wait = lastProgressFrameMillis + 1000 / powerSaverFrameRate - now;
+        if (wait <= 0) {
+            lastProgressFrameMillis = now;
+            invalidateRing();
+        } else {
+            progressFramePosted = true;
+            mainHandler.postDelayed(progressFrameRunnable, wait);
         }
-        invalidate();
+    }
+
+    private final Runnable progressFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            progressFramePosted = false;
+            lastProgressFrameMillis = SystemClock.uptimeMillis();
+            invalidateRing();
+        }
+    };
+
+    private void reduceQuality(long now) {
+        lastMotionMillis = now;
+        if (reducedQuality)
+            return;
+        reducedQuality = true;
+        setStrokeAntiAlias(false);
+        mainHandler.postDelayed(restoreQualityRunnable, POWER_SAVER_REST_DELAY);
+    }
+
+    // posted once per motion, it waits again while progress keeps changing
+    private final Runnable restoreQualityRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long rest = lastMotionMillis + POWER_SAVER_REST_DELAY - SystemClock.uptimeMillis();
+            if (rest > 0) {
+                mainHandler.postDelayed(this, rest);
+            } else {
+                restoreQuality();
+            }
+        }
+    };
+
+    private void restoreQuality() {
+        if (!reducedQuality)
+            return;
+        reducedQuality = false;
+        mainHandler.removeCallbacks(restoreQualityRunnable);
+        setStrokeAntiAlias(true);
+        invalidateRing();
+    }
+
+    private void setStrokeAntiAlias(boolean antiAlias) {
+        backgroundStrokePaint.setAntiAlias(antiAlias);
+        foregroundStrokePaint.setAntiAlias(antiAlias);
+        for (int i = 0; i < trackCount; i++)
+            trackPaints[i].setAntiAlias(antiAlias);
+    }
+
+    // the endpoint moves the most on the outer edge of the foreground stroke
+    private boolean movesArcEndpoint(float progress) {
+        float radius = rectF.width() / 2 + foregroundStrokeWidth / 2;
+        return RingGeometry.arcTravel(progress - drawnProgress, MAX_PROGRESS, radius) >= invalidationThreshold;
+    }
+
+    /**
+     * Called when an animation of the engine, the spring or the shared scheduler reaches its end
+     * value: the final value is drawn and delivered to a progress listener that held it back.
+     */
+    void onProgressSettled() {
+        flushProgress();
+        progressDispatcher.onProgressRest(getProgress());
+    }
+
+    /**
+     * Redraws the ring if the progress moved since the last draw by less than the invalidation
+     * threshold. Called when animations end so the final value is always drawn.
+     */
+    void flushProgress() {
+        if (progressFramePosted) {
+            progressFramePosted = false;
+            mainHandler.removeCallbacks(progressFrameRunnable);
+        }
+        if (reducedQuality)
+            restoreQuality();
+        else if (drawnProgress != getProgress())
+            invalidateRing();
+    }
+
+    /**
+     * {@link #RENDER_MODE_POWER_SAVER} caps progress redraws of this ring at the power saver frame
+     * rate for low priority indicators, {@link #RENDER_MODE_DEFAULT} redraws on every frame.
+     */
+    public void setRenderMode(int renderMode) {
+        this.renderMode = renderMode;
+        if (!isPowerSaving())
+            flushProgress();
+    }
+
+    /**
+     * Render mode of every instance without its own render mode.
+     */
+    public static void setGlobalRenderMode(int renderMode) {
+        globalRenderMode = renderMode;
+    }
+
+    /**
+     * Maximum ring redraws per second of power saver progress changes, 30 by default.
+     */
+    public static void setPowerSaverFrameRate(int framesPerSecond) {
+        powerSaverFrameRate = Math.max(framesPerSecond, 1);
+    }
+
+    /**
+     * Keeps the strokes anti-aliased while the progress moves in power saver, by default they are
+     * drawn aliased in motion and restored once the progress rests.
+     */
+    public static void setPowerSaverAntiAlias(boolean antiAlias) {
+        powerSaverAntiAlias = antiAlias;
+    }
+
+    /**
+     * Progress changes moving the arc endpoint by fewer pixels than the threshold do not redraw the
+     * ring, 0 redraws on every change. Min and max progress and the end of animations always redraw.
+     */
+    public void setInvalidationThreshold(float pixels) {
+        invalidationThreshold = Math.max(pixels, 0);
+    }
+
+    public float getInvalidationThreshold() {
+        return invalidationThreshold;
     }
 
     public void setProgressAnimate(float progress, boolean animate, long delay, long duration) {
-        if (progress == this.progress) return;
+        // a hidden view has nothing to show, it goes straight to the end state
+        if (suspended)
+            animate = false;
+        if (animate && followMode) {
+            follow(progress);
+            return;
+        }
+        if (progress == getProgress()) return;
 
         if (animate) {
-            if (progressAnimator != null && progressAnimator.isRunning())
+            if (isProgressAnimating()) {
+                if (BuildConfig.INSTRUMENTATION && metrics != null)
+                    metrics.onProgressAnimationDropped();
                 return;
-            progressAnimator = ObjectAnimator.ofFloat(this, "progress", this.previousAnimatedProgress, progress);
-            progressAnimator.setDuration(duration);
-            progressAnimator.setStartDelay(delay);
-            progressAnimator.start();
+            }
+            if (schedulerSlot >= 0) {
+                scheduler.animate(schedulerSlot, CircledAnimationScheduler.CHANNEL_PROGRESS, this.previousAnimatedProgress, progress, duration, delay);
+            } else {
+                engine.animateProgress(this.previousAnimatedProgress, progress, duration, delay, CircledAnimatorEngine.PROGRESS_PLAIN);
+            }
             this.previousAnimatedProgress = progress;
         } else {
+            stopFollow();
+            // a paused animation would overwrite the value when the view resumes
+            if (suspended)
+                engine.cancelProgress();
             setProgress(progress);
             this.previousAnimatedProgress = progress;
         }
     }
 
+    /**
+     * Lets a shared scheduler drive the plain progress animations of
+     * {@link #setProgressAnimate(float, boolean, long, long)}, {@link #scaleUp()} and
+     * {@link #scaleDown()}, null goes back to the per-view animators. Gesture animations keep their
+     * own animators since they report to the {@link ProgressAnimationListener}. The layout is only
+     * registered with the scheduler while it is attached to a window, detached layouts animate with
+     * their own animators.
+     */
+    public void setAnimationScheduler(@Nullable CircledAnimationScheduler scheduler) {
+        if (this.scheduler == scheduler)
+            return;
+        unregisterFromScheduler();
+        this.scheduler = scheduler;
+        if (isAttachedToWindow())
+            registerWithScheduler();
+    }
+
+    private void registerWithScheduler() {
+        if (scheduler != null && schedulerSlot < 0)
+            schedulerSlot = scheduler.register(this);
+    }
+
+    private void unregisterFromScheduler() {
+        if (schedulerSlot < 0)
+            return;
+        scheduler.unregister(schedulerSlot);
+        schedulerSlot = -1;
+    }
+
+    public CircledAnimationScheduler getAnimationScheduler() {
+        return scheduler;
+    }
+
+    void onSchedulerSlotMoved(int slot) {
+        schedulerSlot = slot;
+    }
+
+    /**
+     * In follow mode {@link #setProgressAnimate(float, boolean, long, long)} moves the progress with a
+     * spring. Every call retargets the same spring from the value on screen and its current velocity,
+     * delay and duration are ignored.
+     */
+    public void setFollowMode(boolean followMode) {
+        this.followMode = followMode;
+        if (!followMode)
+            stopFollow();
+    }
+
+    public boolean isFollowMode() {
+        return followMode;
+    }
+
+    /**
+     * Stiffness and damping ratio of the follow mode spring, a damping ratio of 1 settles without
+     * overshoot.
+     */
+    public void setFollowSpring(float stiffness, float dampingRatio) {
+        spring.setStiffness(stiffness);
+        spring.setDampingRatio(dampingRatio);
+    }
+
+    private void follow(float target) {
+        if (!springRunning) {
+            // a plain animation hands over at the value on screen
+            engine.cancelProgress();
+            if (schedulerSlot >= 0)
+                scheduler.cancel(schedulerSlot, CircledAnimationScheduler.CHANNEL_PROGRESS);
+            spring.reset(getProgress());
+            springRunning = true;
+            springFrameTimeNanos = 0;
+            Choreographer.getInstance().postFrameCallback(springFrameCallback);
+        }
+        spring.setTarget(Math.max(MIN_PROGRESS, Math.min(MAX_PROGRESS, target)));
+        previousAnimatedProgress = spring.getTarget();
+    }
+
+    private void stopFollow() {
+        if (!springRunning)
+            return;
+        springRunning = false;
+        Choreographer.getInstance().removeFrameCallback(springFrameCallback);
+    }
+
+    private final Choreographer.FrameCallback springFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // the first frame after a start has no time base yet, step one nominal frame
+            float seconds = springFrameTimeNanos == 0 ? 1 / 60f : (frameTimeNanos - springFrameTimeNanos) / 1e9f;
+            springFrameTimeNanos = frameTimeNanos;
+            boolean moving = spring.step(seconds);
+            setProgress(spring.getValue());
+            if (moving) {
+                Choreographer.getInstance().postFrameCallback(this);
+            } else {
+                springRunning = false;
+                onProgressSettled();
+            }
+        }
+    };
+
+    /**
+     * Thread safe variant of {@link #setProgress(float)} for workers reporting progress at a high
+     * rate. Only the latest value is kept and it is applied at most once per frame on the main
+     * thread, intermediate values are dropped.
+     */
+    public void publishProgress(float progress) {
+        publishedProgressBits.set(Float.floatToIntBits(progress));
+        if (!publishScheduled.compareAndSet(false, true))
+            return;
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            // a suspended view applies the value when it resumes
+            if (!suspended)
+                Choreographer.getInstance().postFrameCallback(publishFrameCallback);
+        } else {
+            mainHandler.post(schedulePublishRunnable);
+        }
+    }
+
+    private final Runnable schedulePublishRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!suspended)
+                Choreographer.getInstance().postFrameCallback(publishFrameCallback);
+        }
+    };
+
+    private final Choreographer.FrameCallback publishFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            applyPublishedProgress();
+        }
+    };
+
+    private void applyPublishedProgress() {
+        // clear the flag before reading so a value published meanwhile schedules the next frame
+        publishScheduled.set(false);
+        float published = Float.intBitsToFloat(publishedProgressBits.get());
+        if (published != getProgress())
+            setProgress(published);
+    }
+
+    /**
+     * Binds the view to a row of the store. The previous row gets the in-flight state written back,
+     * pending gestures and running animations are canceled and the row state is applied instantly,
+     * without starting animators or notifying listeners.
+     */
+    public void bind(ProgressStateStore store, int position) {
+        unbind();
+        boundStore = store;
+        boundPosition = position;
+        cancelPendingWork();
+        applyState(store.getProgress(position), store.getLastProgress(position), store.isSelected(position));
+    }
+
+    /**
+     * Writes the current state back to the bound row, call it from onViewRecycled. A running progress
+     * animation is stored at its target value.
+     */
+    public void unbind() {
+        if (boundStore == null)
+            return;
+        float state = getProgress();
+        int lastState = progressModel.getLastProgress();
+        if (isProgressAnimating() || springRunning) {
+            if (springRunning)
+                state = spring.getTarget();
+            else if (engine.isProgressRunning())
+                state = engine.getProgressTarget();
+            else
+                state = scheduler.getTarget(schedulerSlot, CircledAnimationScheduler.CHANNEL_PROGRESS);
+            if (state <= MIN_PROGRESS)
+                lastState = MIN_PROGRESS;
+            else if (state >= MAX_PROGRESS)
+                lastState = MAX_PROGRESS;
+        }
+        boundStore.set(boundPosition, state, lastState, isSelected);
+        boundStore = null;
+        boundPosition = -1;
+    }
+
+    private void cancelPendingWork() {
+        gestureDetector.cancel();
+        progressDispatcher.cancel();
+        flushProgress();
+
+        mainHandler.removeCallbacks(schedulePublishRunnable);
+        Choreographer.getInstance().removeFrameCallback(publishFrameCallback);
+        publishScheduled.set(false);
+
+        engine.cancelAll();
+        stopFollow();
+        if (schedulerSlot >= 0) {
+            scheduler.cancel(schedulerSlot, CircledAnimationScheduler.CHANNEL_PROGRESS);
+            scheduler.cancel(schedulerSlot, CircledAnimationScheduler.CHANNEL_SCALE);
+        }
+        scaleDownInstantly();
+        if (foregroundStrokeWidth != initialForegroundStrokeWidth)
+            setForegroundStrokeWidth(initialForegroundStrokeWidth);
+    }
+
+    private void applyState(float progress, int lastProgress, boolean selected) {
+        progressModel.restore(progress, lastProgress, MIN_PROGRESS, MAX_PROGRESS);
+        this.previousAnimatedProgress = getProgress();
+        setSelected(selected);
+        invalidateRing();
+    }
+
+    /**
+     * Reports draw, invalidation and animator counters about once per second, null turns the
+     * counters off. Does nothing when the library is built with instrumentation disabled.
+     */
+    public void setMetricsListener(@Nullable CircledMetrics.Listener listener) {
+        if (!BuildConfig.INSTRUMENTATION)
+            return;
+        metrics = listener != null ? new CircledMetrics(listener) : null;
+    }
+
+    /**
+     * Adds systrace sections around draw, measure and animator starts of every instance.
+     */
+    public static void setTracingEnabled(boolean enabled) {
+        tracingEnabled = enabled;
+    }
+
     public void setProgressListener(ProgressListener progressListener) {
-        this.progressListener = progressListener;
+        progressDispatcher.setListener(progressListener);
+    }
+
+    /**
+     * Only notifies the progress listener once the progress moved at least this much since the last
+     * notification. Min and max progress are always delivered.
+     */
+    public void setProgressListenerStep(float minStep) {
+        progressDispatcher.setMinStep(minStep);
+    }
+
+    /**
+     * Notifies the progress listener at most this many times per second, 0 removes the limit. The
+     * latest value held back is delivered when the interval passes.
+     */
+    public void setProgressListenerMaxRate(int dispatchesPerSecond) {
+        progressDispatcher.setMaxRate(dispatchesPerSecond);
+    }
+
+    /**
+     * Delivers progress listener calls on the executor instead of the main thread, null goes back
+     * to direct calls. Only the latest value is queued, values changing faster than the executor
+     * runs are dropped.
+     */
+    public void setProgressListenerExecutor(@Nullable Executor executor) {
+        progressDispatcher.setExecutor(executor);
+    }
+
+    /**
+     * Called at most once per frame with the last progress of that frame, for UI bound to the
+     * progress. Works next to the regular progress listener.
+     */
+    public void setFrameProgressListener(@Nullable ProgressListener frameProgressListener) {
+        progressDispatcher.setFrameListener(frameProgressListener);
     }
 
     public boolean shouldStealLongPressGesture() {
@@ -611,7 +1715,7 @@ public class CircledFrameLayout extends FrameLayout {
     protected Parcelable onSaveInstanceState() {
         Parcelable superState = super.onSaveInstanceState();
         SavedState state = new SavedState(superState);
-        state.progressState = progress;
+        state.progressState = getProgress();
         return state;
     }
 
@@ -619,7 +1723,7 @@ public class CircledFrameLayout extends FrameLayout {
     protected void onRestoreInstanceState(Parcelable state) {
         SavedState ss = (SavedState) state;
         super.onRestoreInstanceState(ss.getSuperState());
-        progress = ss.progressState;
+        progressModel.restore(ss.progressState, progressModel.getLastProgress(), MIN_PROGRESS, MAX_PROGRESS);
     }
 
     private static class SavedState extends BaseSavedState {
@@ -0,0 +1,128 @@
+package com.ivjukic.circledframelayout;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+import com.ivjukic.circledframelayout.core.GestureMath;
+
+/**
+ * Long press state machine of {@link CircledFrameLayout}. It follows the first pointer, cancels the
+ * press when that pointer leaves the touch slop or a second pointer goes down, and posts itself as
+ * the delayed long press callback, so handling touches never allocates.
+ */
+final class CircledGestureDetector implements Runnable {
+
+    static final int DEFAULT_LONG_PRESS_TIMEOUT = 500;
+
+    private static final int STATE_IDLE = 0;
+    // down, waiting for the long press timeout
+    private static final int STATE_PRESSED = 1;
+    // long press fired, waiting for the release
+    private static final int STATE_LONG_PRESSED = 2;
+    // moved or multi touch, ignored until the release
+    private static final int STATE_CANCELED = 3;
+
+    private final CircledFrameLayout layout;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final int touchSlopSquare;
+    private int longPressTimeout = DEFAULT_LONG_PRESS_TIMEOUT;
+
+    private int state = STATE_IDLE;
+    private int activePointerId = MotionEvent.INVALID_POINTER_ID;
+    private float downX;
+    private float downY;
+
+    CircledGestureDetector(CircledFrameLayout layout) {
+        this.layout = layout;
+        int touchSlop = ViewConfiguration.get(layout.getContext()).getScaledTouchSlop();
+        touchSlopSquare = touchSlop * touchSlop;
+    }
+
+    /**
+     * Returns true while a gesture is tracked, false once it is released.
+     */
+    boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                cancel();
+                activePointerId = event.getPointerId(0);
+                downX = event.getX();
+                downY = event.getY();
+                state = STATE_PRESSED;
+                handler.postDelayed(this, longPressTimeout);
+                break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                cancelPress();
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (state == STATE_PRESSED) {
+                    int index = event.findPointerIndex(activePointerId);
+                    if (index < 0) {
+                        cancelPress();
+                    } else {
+                        float dx = event.getX(index) - downX;
+                        float dy = event.getY(index) - downY;
+                        if (GestureMath.isOutsideSlop(dx, dy, touchSlopSquare))
+                            cancelPress();
+                    }
+                }
+                break;
+            case MotionEvent.ACTION_POINTER_UP:
+                if (event.getPointerId(event.getActionIndex()) == activePointerId)
+                    cancelPress();
+                break;
+            case MotionEvent.ACTION_UP:
+                release(false);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                release(true);
+                break;
+        }
+        return state != STATE_IDLE;
+    }
+
+    @Override
+    public void run() {
+        if (state != STATE_PRESSED)
+            return;
+        state = STATE_LONG_PRESSED;
+        layout.onLongPress();
+    }
+
+    /**
+     * Drops the current gesture without notifying the layout.
+     */
+    void cancel() {
+        handler.removeCallbacks(this);
+        state = STATE_IDLE;
+        activePointerId = MotionEvent.INVALID_POINTER_ID;
+    }
+
+    /**
+     * Ends the current gesture as canceled, a long press that already fired is reported to the
+     * layout like an ACTION_CANCEL.
+     */
+    void abort() {
+        release(true);
+    }
+
+    void setLongPressTimeout(int longPressTimeout) {
+        this.longPressTimeout = longPressTimeout;
+    }
+
+    private void cancelPress() {
+        if (state != STATE_PRESSED)
+            return;
+        handler.removeCallbacks(this);
+        state = STATE_CANCELED;
+    }
+
+    private void release(boolean canceled) {
+        boolean longPressed = state == STATE_LONG_PRESSED;
+        cancel();
+        if (longPressed)
+            layout.onLongPressEnd(canceled);
+    }
+}
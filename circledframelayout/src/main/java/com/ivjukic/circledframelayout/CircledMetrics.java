@@ -0,0 +1,92 @@
+package com.ivjukic.circledframelayout;
+
+/**
+ * Draw and animation counters of one {@link CircledFrameLayout}, enabled with
+ * {@link CircledFrameLayout#setMetricsListener(Listener)}. The same instance is updated and
+ * reported about once per second from the draw pass, so reporting does not allocate.
+ */
+public final class CircledMetrics {
+
+    public interface Listener {
+        void onMetrics(CircledMetrics metrics);
+    }
+
+    private static final long REPORT_INTERVAL_NANOS = 1000000000L;
+
+    private final Listener listener;
+
+    private long drawCount;
+    private long drawTimeNanos;
+    private long invalidationCount;
+    private float invalidationsPerSecond;
+    private int animatorAllocations;
+    private long droppedProgressAnimations;
+
+    private long windowStartNanos;
+    private long windowInvalidations;
+
+    CircledMetrics(Listener listener) {
+        this.listener = listener;
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    void onDraw(long startNanos, int animatorAllocations) {
+        long now = System.nanoTime();
+        drawCount++;
+        drawTimeNanos += now - startNanos;
+        this.animatorAllocations = animatorAllocations;
+
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= REPORT_INTERVAL_NANOS) {
+            invalidationsPerSecond = windowInvalidations * (float) REPORT_INTERVAL_NANOS / elapsed;
+            windowInvalidations = 0;
+            windowStartNanos = now;
+            listener.onMetrics(this);
+        }
+    }
+
+    void onInvalidate() {
+        invalidationCount++;
+        windowInvalidations++;
+    }
+
+    void onProgressAnimationDropped() {
+        droppedProgressAnimations++;
+    }
+
+    public long getDrawCount() {
+        return drawCount;
+    }
+
+    /**
+     * Cumulative time spent in the layout and ring draw passes.
+     */
+    public long getDrawTimeNanos() {
+        return drawTimeNanos;
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Invalidations per second over the last reporting window.
+     */
+    public float getInvalidationsPerSecond() {
+        return invalidationsPerSecond;
+    }
+
+    /**
+     * Animators created by the layout since it was constructed.
+     */
+    public int getAnimatorAllocations() {
+        return animatorAllocations;
+    }
+
+    /**
+     * setProgressAnimate calls ignored because a progress animation was already running.
+     */
+    public long getDroppedProgressAnimations() {
+        return droppedProgressAnimations;
+    }
+}
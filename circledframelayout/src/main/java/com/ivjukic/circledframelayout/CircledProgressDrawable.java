@@ -0,0 +1,235 @@
+package com.ivjukic.circledframelayout;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Flat drawable version of {@link CircledFrameLayout}: inner fill, an optional bitmap cropped to the
+ * circle and the progress ring, without a ViewGroup around the content. Use it as an ImageView
+ * foreground or background, as a compound drawable of a TextView, or drive it through
+ * {@link #setLevel(int)} where 10000 is full progress. The intrinsic size comes from
+ * {@code cfl_intrinsic_size} of the style (48dp by default), hosts sizing drawables themselves
+ * still have to call {@link #setBounds(int, int, int, int)}.
+ */
+public class CircledProgressDrawable extends Drawable {
+
+    private static final int MAX_LEVEL = 10000;
+
+    private final Paint backgroundStrokePaint;
+    private final Paint foregroundStrokePaint;
+    private final Paint innerFillPaint;
+    private final Paint bitmapPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    private final RectF rectF = new RectF();
+    private final RectF fullRectF = new RectF();
+    private final Matrix bitmapMatrix = new Matrix();
+    private final RingGradient foregroundGradient = new RingGradient();
+
+    private Bitmap bitmap;
+    private float progress = 0;
+    private int startAngle = -90;
+    private int backgroundStrokeColor;
+    private int foregroundStrokeColor;
+    private int innerFillColor;
+    private int alpha = 255;
+    private int intrinsicSize;
+
+    public CircledProgressDrawable(Context context) {
+        this(CircledStyle.obtain(context, 0));
+    }
+
+    public CircledProgressDrawable(CircledStyle style) {
+        innerFillPaint = new Paint(style.innerFillPaint);
+        innerFillPaint.setAntiAlias(true);
+        backgroundStrokePaint = new Paint(style.backgroundStrokePaint);
+        foregroundStrokePaint = new Paint(style.foregroundStrokePaint);
+        backgroundStrokeColor = style.backgroundStrokeColor;
+        foregroundStrokeColor = style.foregroundStrokeColor;
+        innerFillColor = style.innerFillColor;
+        intrinsicSize = style.intrinsicSize;
+        foregroundGradient.setColors(style.foregroundGradientColors);
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (innerFillPaint.getAlpha() != 0)
+            canvas.drawOval(fullRectF, innerFillPaint);
+        if (bitmap != null)
+            canvas.drawOval(fullRectF, bitmapPaint);
+
+        float angle = 360 * progress / CircledFrameLayout.MAX_PROGRESS;
+        canvas.drawOval(rectF, backgroundStrokePaint);
+        canvas.drawArc(rectF, startAngle, angle, false, foregroundStrokePaint);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return intrinsicSize;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return intrinsicSize;
+    }
+
+    /**
+     * Size reported to hosts like compound drawables and wrap_content image views.
+     */
+    public void setIntrinsicSize(int intrinsicSize) {
+        this.intrinsicSize = intrinsicSize;
+        invalidateSelf();
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        super.onBoundsChange(bounds);
+        updateGeometry();
+    }
+
+    @Override
+    protected boolean onLevelChange(int level) {
+        setProgress(CircledFrameLayout.MAX_PROGRESS * level / (float) MAX_LEVEL);
+        return true;
+    }
+
+    // the ring and the crop are centered in the largest square that fits the bounds
+    private void updateGeometry() {
+        Rect bounds = getBounds();
+        float min = Math.min(bounds.width(), bounds.height());
+        float left = bounds.left + (bounds.width() - min) / 2f;
+        float top = bounds.top + (bounds.height() - min) / 2f;
+        fullRectF.set(left, top, left + min, top + min);
+
+        float strokeWidth = Math.max(backgroundStrokePaint.getStrokeWidth(), foregroundStrokePaint.getStrokeWidth());
+        rectF.set(fullRectF);
+        rectF.inset(strokeWidth / 2, strokeWidth / 2);
+        updateForegroundShader();
+
+        if (bitmap != null) {
+            float scale = Math.max(min / bitmap.getWidth(), min / bitmap.getHeight());
+            bitmapMatrix.setScale(scale, scale);
+            bitmapMatrix.postTranslate(fullRectF.centerX() - bitmap.getWidth() * scale / 2f,
+                    fullRectF.centerY() - bitmap.getHeight() * scale / 2f);
+            bitmapPaint.getShader().setLocalMatrix(bitmapMatrix);
+        }
+    }
+
+    private void updateForegroundShader() {
+        foregroundStrokePaint.setShader(foregroundGradient.update(rectF.centerX(), rectF.centerY(), startAngle));
+    }
+
+    /**
+     * Crops the bitmap to the circle below the ring, null removes it.
+     */
+    public void setBitmap(@Nullable Bitmap bitmap) {
+        this.bitmap = bitmap;
+        bitmapPaint.setShader(bitmap != null ? new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP) : null);
+        updateGeometry();
+        invalidateSelf();
+    }
+
+    public float getProgress() {
+        return progress;
+    }
+
+    public void setProgress(float progress) {
+        float clamped = Math.max(CircledFrameLayout.MIN_PROGRESS, Math.min(CircledFrameLayout.MAX_PROGRESS, progress));
+        if (clamped == this.progress)
+            return;
+        this.progress = clamped;
+        invalidateSelf();
+    }
+
+    public void setStartAngle(int startAngle) {
+        this.startAngle = startAngle;
+        updateForegroundShader();
+        invalidateSelf();
+    }
+
+    public void setBackgroundStrokeColor(int backgroundStrokeColor) {
+        this.backgroundStrokeColor = backgroundStrokeColor;
+        setColorWithAlpha(backgroundStrokePaint, backgroundStrokeColor);
+        invalidateSelf();
+    }
+
+    public void setForegroundStrokeColor(int foregroundStrokeColor) {
+        this.foregroundStrokeColor = foregroundStrokeColor;
+        setColorWithAlpha(foregroundStrokePaint, foregroundStrokeColor);
+        invalidateSelf();
+    }
+
+    public void setInnerFillColor(int innerFillColor) {
+        this.innerFillColor = innerFillColor;
+        setColorWithAlpha(innerFillPaint, innerFillColor);
+        invalidateSelf();
+    }
+
+    // the drawable alpha is applied on top of the color alpha
+    private void setColorWithAlpha(Paint paint, int color) {
+        paint.setColor(color);
+        paint.setAlpha(Color.alpha(color) * alpha / 255);
+    }
+
+    /**
+     * Draws the arc with a sweep gradient starting at the start angle, null removes it.
+     */
+    public void setForegroundGradient(@Nullable int... colors) {
+        foregroundGradient.setColors(colors);
+        updateForegroundShader();
+        invalidateSelf();
+    }
+
+    public void setBackgroundStrokeWidth(float backgroundStrokeWidth) {
+        backgroundStrokePaint.setStrokeWidth(backgroundStrokeWidth);
+        updateGeometry();
+        invalidateSelf();
+    }
+
+    public void setForegroundStrokeWidth(float foregroundStrokeWidth) {
+        foregroundStrokePaint.setStrokeWidth(foregroundStrokeWidth);
+        updateGeometry();
+        invalidateSelf();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+        setColorWithAlpha(innerFillPaint, innerFillColor);
+        setColorWithAlpha(backgroundStrokePaint, backgroundStrokeColor);
+        setColorWithAlpha(foregroundStrokePaint, foregroundStrokeColor);
+        bitmapPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return alpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        innerFillPaint.setColorFilter(colorFilter);
+        bitmapPaint.setColorFilter(colorFilter);
+        backgroundStrokePaint.setColorFilter(colorFilter);
+        foregroundStrokePaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,231 @@
+package com.ivjukic.circledframelayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+/**
+ * Renders circled bitmaps with progress without a laid-out {@link CircledFrameLayout}, e.g. for
+ * notification avatars, widgets and share sheets. Drawing goes through {@link CircledProgressDrawable},
+ * so the output matches the layout in image mode. Results are cached in a size-bounded LRU keyed by
+ * content id, size and progress quantized to {@link #getProgressSteps()} steps.
+ *
+ * Cached snapshots are shared: every caller asking for the same key gets the same Bitmap instance.
+ * Treat them as read-only, never recycle or draw into them, and copy one before changing it. The
+ * cache does not recycle evicted bitmaps either, they are freed once no caller holds them.
+ */
+public final class CircledSnapshotRenderer {
+
+    public interface Callback {
+        /**
+         * Called on the main thread.
+         */
+        void onSnapshot(Bitmap snapshot);
+    }
+
+    private static final int DEFAULT_PROGRESS_STEPS = 100;
+
+    private final CircledStyle style;
+    private final Executor executor;
+    private final int progressSteps;
+    private final LruCache<String, Bitmap> cache;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // callbacks waiting for a render that is already queued, by key. A render only caches its result
+    // while its own list is still the entry, invalidate() and clear() drop the entries.
+    private final HashMap<String, ArrayList<Callback>> inFlight = new HashMap<>();
+
+    public CircledSnapshotRenderer(CircledStyle style, Executor executor, int maxCacheBytes) {
+        this(style, executor, maxCacheBytes, DEFAULT_PROGRESS_STEPS);
+    }
+
+    /**
+     * @param progressSteps progress values rounding to the same step share one cached bitmap
+     */
+    public CircledSnapshotRenderer(CircledStyle style, Executor executor, int maxCacheBytes, int progressSteps) {
+        this.style = style;
+        this.executor = executor;
+        this.progressSteps = Math.max(progressSteps, 1);
+        this.cache = new LruCache<String, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Draws the snapshot on the calling thread, without caching. Safe to call from any thread.
+     */
+    public static Bitmap render(@Nullable Bitmap content, int size, float progress, CircledStyle style) {
+        checkSize(size);
+        CircledProgressDrawable drawable = new CircledProgressDrawable(style);
+        drawable.setBitmap(content);
+        drawable.setProgress(progress);
+        drawable.setBounds(0, 0, size, size);
+
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    /**
+     * Returns the shared cached snapshot or null, without rendering.
+     */
+    @Nullable
+    public Bitmap getCached(String contentId, int size, float progress) {
+        return cache.get(key(contentId, size, quantize(progress)));
+    }
+
+    /**
+     * Delivers the shared snapshot to the callback on the main thread. Cache hits requested from the
+     * main thread are delivered right away, misses are rendered on the executor. Requests for a key
+     * that is already being rendered wait for that render instead of starting another one. When the
+     * render fails, e.g. out of memory, its waiting callbacks are dropped and the next request for the
+     * key renders again.
+     */
+    public void render(String contentId, @Nullable final Bitmap content, final int size, float progress,
+                       final Callback callback) {
+        checkSize(size);
+        final int step = quantize(progress);
+        final String key = key(contentId, size, step);
+        Bitmap cached = cache.get(key);
+        if (cached != null && Looper.myLooper() == Looper.getMainLooper()) {
+            callback.onSnapshot(cached);
+            return;
+        }
+        if (cached != null) {
+            deliver(cached, callback);
+            return;
+        }
+
+        ArrayList<Callback> waiting;
+        synchronized (inFlight) {
+            // a render may have finished since the lookup above
+            cached = cache.get(key);
+            if (cached != null) {
+                deliver(cached, callback);
+                return;
+            }
+            waiting = inFlight.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(key, waiting);
+        }
+
+        try {
+            execute(key, waiting, content, size, step);
+        } catch (RuntimeException e) {
+            // a rejected render would leave the waiting callbacks queued forever
+            release(key, waiting);
+            throw e;
+        }
+    }
+
+    private void execute(final String key, final ArrayList<Callback> waiting, @Nullable final Bitmap content,
+                         final int size, final int step) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap snapshot = null;
+                try {
+                    // render the quantized value so the cached bitmap matches its key
+                    snapshot = render(content, size, CircledFrameLayout.MAX_PROGRESS * step / (float) progressSteps, style);
+                } finally {
+                    synchronized (inFlight) {
+                        // invalidated while rendering, the old content must not be cached
+                        if (release(key, waiting) && snapshot != null)
+                            cache.put(key, snapshot);
+                    }
+                }
+                // callers that asked before an invalidate still get the content they asked for
+                deliver(snapshot, waiting);
+            }
+        });
+    }
+
+    // removes the entry if it is still the given render, returns false when it was dropped
+    private boolean release(String key, ArrayList<Callback> waiting) {
+        synchronized (inFlight) {
+            if (inFlight.get(key) != waiting)
+                return false;
+            inFlight.remove(key);
+            return true;
+        }
+    }
+
+    private static void checkSize(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Snapshot size " + size + " must be positive");
+    }
+
+    private void deliver(final Bitmap snapshot, final Callback callback) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSnapshot(snapshot);
+            }
+        });
+    }
+
+    private void deliver(final Bitmap snapshot, final ArrayList<Callback> callbacks) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0, count = callbacks.size(); i < count; i++)
+                    callbacks.get(i).onSnapshot(snapshot);
+            }
+        });
+    }
+
+    private int quantize(float progress) {
+        float clamped = Math.max(CircledFrameLayout.MIN_PROGRESS, Math.min(CircledFrameLayout.MAX_PROGRESS, progress));
+        return Math.round(clamped / CircledFrameLayout.MAX_PROGRESS * progressSteps);
+    }
+
+    private static String key(String contentId, int size, int step) {
+        return contentId + '|' + size + '|' + step;
+    }
+
+    public int getProgressSteps() {
+        return progressSteps;
+    }
+
+    /**
+     * Drops cached snapshots of one content id, e.g. after the avatar changed. Renders of the id that
+     * are still running deliver to their callbacks but are not cached.
+     */
+    public void invalidate(String contentId) {
+        String prefix = contentId + '|';
+        synchronized (inFlight) {
+            Iterator<String> keys = inFlight.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().startsWith(prefix))
+                    keys.remove();
+            }
+            for (String key : cache.snapshot().keySet()) {
+                if (key.startsWith(prefix))
+                    cache.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (inFlight) {
+            inFlight.clear();
+            cache.evictAll();
+        }
+    }
+}
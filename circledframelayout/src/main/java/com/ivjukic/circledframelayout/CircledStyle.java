@@ -0,0 +1,235 @@
+package com.ivjukic.circledframelayout;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+import android.util.TypedValue;
+
+import androidx.annotation.StyleRes;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Immutable set of resolved {@link CircledFrameLayout} attributes and paint templates. Styles from
+ * {@link #obtain(Context, int)} are cached per theme instance, configuration and style resource, so
+ * layouts sharing a style do not parse attributes or resolve display metrics again. A configuration
+ * change (night mode, density, font scale...) resolves the styles again, a theme changed with
+ * {@link Resources.Theme#applyStyle(int, boolean)} after the first lookup keeps its cached styles. Apply one with
+ * {@link CircledFrameLayout#CircledFrameLayout(Context, CircledStyle)} or
+ * {@link CircledFrameLayout#setStyle(CircledStyle)}.
+ */
+public final class CircledStyle {
+
+    private static final float DEFAULT_INTRINSIC_SIZE = 48f;
+
+    // one entry per live theme instance, themes are mutable and equal across activities so they
+    // are compared by identity
+    private static final ArrayList<ThemeStyles> CACHE = new ArrayList<>();
+
+    private static final class ThemeStyles {
+        final WeakReference<Resources.Theme> theme;
+        // the configuration the styles were resolved with
+        final Configuration configuration;
+        final SparseArray<CircledStyle> styles = new SparseArray<>();
+
+        ThemeStyles(Resources.Theme theme, Configuration configuration) {
+            this.theme = new WeakReference<>(theme);
+            this.configuration = new Configuration(configuration);
+        }
+    }
+
+    final int backgroundStrokeColor;
+    final int foregroundStrokeColor;
+    final int innerFillColor;
+    // null when the arc is drawn with the solid foreground color
+    final int[] foregroundGradientColors;
+    final float backgroundStrokeWidth;
+    final float foregroundStrokeWidth;
+    final int progressAnimationDuration;
+    final int scaleAnimationDuration;
+    final float scaleFactor;
+    final float fakeScaleFactor;
+    final boolean userInteractionEnabled;
+    final int clipMode;
+    final int longPressTimeout;
+    // intrinsic width and height of drawables built from the style
+    final int intrinsicSize;
+
+    // templates only, layouts copy them and never mutate these
+    final Paint backgroundStrokePaint;
+    final Paint foregroundStrokePaint;
+    final Paint innerFillPaint;
+
+    private CircledStyle(TypedArray a, DisplayMetrics metrics) {
+        float defaultStrokeWidth = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                CircledFrameLayout.DEFAULT_STROKE_WIDTH, metrics);
+        backgroundStrokeColor = a.getColor(R.styleable.CircledFrameLayout_cfl_background_border_color, Color.WHITE);
+        foregroundStrokeColor = a.getColor(R.styleable.CircledFrameLayout_cfl_foreground_border_color, Color.BLUE);
+        innerFillColor = a.getColor(R.styleable.CircledFrameLayout_cfl_inner_fill_color, Color.TRANSPARENT);
+        if (a.hasValue(R.styleable.CircledFrameLayout_cfl_foreground_gradient_start_color)
+                || a.hasValue(R.styleable.CircledFrameLayout_cfl_foreground_gradient_end_color)) {
+            foregroundGradientColors = new int[]{
+                    a.getColor(R.styleable.CircledFrameLayout_cfl_foreground_gradient_start_color, foregroundStrokeColor),
+                    a.getColor(R.styleable.CircledFrameLayout_cfl_foreground_gradient_end_color, foregroundStrokeColor)};
+        } else {
+            foregroundGradientColors = null;
+        }
+        backgroundStrokeWidth = a.getDimension(R.styleable.CircledFrameLayout_cfl_background_border_width, defaultStrokeWidth);
+        foregroundStrokeWidth = a.getDimension(R.styleable.CircledFrameLayout_cfl_foreground_border_width, defaultStrokeWidth);
+        progressAnimationDuration = a.getInt(R.styleable.CircledFrameLayout_cfl_progress_animation_duration, CircledFrameLayout.PROGRESS_ANIM_DURATION);
+        scaleAnimationDuration = a.getInt(R.styleable.CircledFrameLayout_cfl_scale_animation_duration, CircledFrameLayout.DEFAULT_SCALE_DURATION);
+        scaleFactor = a.getFloat(R.styleable.CircledFrameLayout_cfl_scale_factor, CircledFrameLayout.DEFAULT_SCALE_FACTOR);
+        fakeScaleFactor = a.getFloat(R.styleable.CircledFrameLayout_cfl_fake_scale_factor, CircledFrameLayout.DEFAULT_FAKE_SCALE_FACTOR);
+        userInteractionEnabled = a.getBoolean(R.styleable.CircledFrameLayout_cfl_user_interaction_enabled, true);
+        clipMode = a.getInt(R.styleable.CircledFrameLayout_cfl_clip_mode, CircledFrameLayout.CLIP_MODE_AUTO);
+        longPressTimeout = a.getInt(R.styleable.CircledFrameLayout_cfl_long_press_timeout, CircledGestureDetector.DEFAULT_LONG_PRESS_TIMEOUT);
+        intrinsicSize = a.getDimensionPixelSize(R.styleable.CircledFrameLayout_cfl_intrinsic_size,
+                Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, DEFAULT_INTRINSIC_SIZE, metrics)));
+
+        innerFillPaint = new Paint();
+        innerFillPaint.setColor(innerFillColor);
+
+        backgroundStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        backgroundStrokePaint.setColor(backgroundStrokeColor);
+        backgroundStrokePaint.setStyle(Paint.Style.STROKE);
+        backgroundStrokePaint.setStrokeWidth(backgroundStrokeWidth);
+
+        foregroundStrokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        foregroundStrokePaint.setColor(foregroundStrokeColor);
+        foregroundStrokePaint.setStyle(Paint.Style.STROKE);
+        foregroundStrokePaint.setStrokeWidth(foregroundStrokeWidth);
+    }
+
+    /**
+     * Returns the cached style for the context theme and configuration and the given style resource,
+     * 0 resolves the attribute defaults.
+     */
+    public static CircledStyle obtain(Context context, @StyleRes int styleRes) {
+        Resources.Theme theme = context.getTheme();
+        Configuration configuration = context.getResources().getConfiguration();
+        synchronized (CACHE) {
+            ThemeStyles entry = null;
+            for (int i = CACHE.size() - 1; i >= 0; i--) {
+                Resources.Theme cached = CACHE.get(i).theme.get();
+                if (cached == null) {
+                    CACHE.remove(i);
+                } else if (cached == theme) {
+                    entry = CACHE.get(i);
+                }
+            }
+            if (entry != null && entry.configuration.diff(configuration) != 0) {
+                CACHE.remove(entry);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new ThemeStyles(theme, configuration);
+                CACHE.add(entry);
+            }
+            SparseArray<CircledStyle> styles = entry.styles;
+            CircledStyle style = styles.get(styleRes);
+            if (style == null) {
+                style = parse(context, null, styleRes);
+                styles.put(styleRes, style);
+            }
+            return style;
+        }
+    }
+
+    static CircledStyle parse(Context context, AttributeSet attrs, @StyleRes int styleRes) {
+        TypedArray a = context.getTheme().obtainStyledAttributes(attrs, R.styleable.CircledFrameLayout, 0, styleRes);
+        try {
+            return new CircledStyle(a, context.getResources().getDisplayMetrics());
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * Returns the style for an inflated layout. When the xml only sets a {@code style} and no cfl_
+     * attributes inline, the cached style is shared instead of parsing the attribute set.
+     */
+    static CircledStyle from(Context context, AttributeSet attrs, @StyleRes int defStyleRes) {
+        if (attrs == null)
+            return obtain(context, defStyleRes);
+        if (!hasInlineAttributes(attrs))
+            return obtain(context, attrs.getStyleAttribute() != 0 ? attrs.getStyleAttribute() : defStyleRes);
+        return parse(context, attrs, defStyleRes);
+    }
+
+    private static boolean hasInlineAttributes(AttributeSet attrs) {
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            int nameResource = attrs.getAttributeNameResource(i);
+            for (int attr : R.styleable.CircledFrameLayout) {
+                if (attr == nameResource)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    public int getBackgroundStrokeColor() {
+        return backgroundStrokeColor;
+    }
+
+    public int getForegroundStrokeColor() {
+        return foregroundStrokeColor;
+    }
+
+    /**
+     * Returns a copy of the foreground gradient colors, or null when no gradient is set.
+     */
+    public int[] getForegroundGradientColors() {
+        return foregroundGradientColors != null ? foregroundGradientColors.clone() : null;
+    }
+
+    public int getInnerFillColor() {
+        return innerFillColor;
+    }
+
+    public float getBackgroundStrokeWidth() {
+        return backgroundStrokeWidth;
+    }
+
+    public float getForegroundStrokeWidth() {
+        return foregroundStrokeWidth;
+    }
+
+    public int getProgressAnimationDuration() {
+        return progressAnimationDuration;
+    }
+
+    public int getScaleAnimationDuration() {
+        return scaleAnimationDuration;
+    }
+
+    public float getScaleFactor() {
+        return scaleFactor;
+    }
+
+    public float getFakeScaleFactor() {
+        return fakeScaleFactor;
+    }
+
+    public boolean isUserInteractionEnabled() {
+        return userInteractionEnabled;
+    }
+
+    public int getClipMode() {
+        return clipMode;
+    }
+
+    public int getLongPressTimeout() {
+        return longPressTimeout;
+    }
+
+    public int getIntrinsicSize() {
+        return intrinsicSize;
+    }
+}
@@ -0,0 +1,195 @@
+package com.ivjukic.circledframelayout;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers progress changes of a {@link CircledFrameLayout} to its listeners. The progress listener
+ * can be limited to a minimum step and a maximum rate and moved to an executor, the frame listener
+ * gets the last value of each frame. Terminal values are always delivered, the latest value held
+ * back by the rate limit is delivered once the interval passes and a value skipped by the step is
+ * delivered when an animation comes to rest, so listeners never miss the final state. Values that
+ * never went through the filter, e.g. restored by a rebind, are not delivered on rest. Dispatching
+ * reuses its runnables and value slots and never allocates.
+ */
+final class ProgressDispatcher implements Runnable, Choreographer.FrameCallback {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // read by the delivery runnable on the executor thread
+    private volatile CircledFrameLayout.ProgressListener listener;
+    private float minStep = 0;
+    private long minIntervalMillis = 0;
+    private volatile Executor executor;
+
+    private boolean dispatched = false;
+    private float lastDispatched;
+    private long lastDispatchMillis;
+    // value held back by the rate limit, delivered by run()
+    private float pending;
+    private boolean pendingPosted = false;
+    // the last value was skipped by the step or is waiting for the rate limit
+    private boolean heldBack = false;
+
+    // latest value for the executor, only one delivery is queued at a time
+    private final AtomicInteger deliveryBits = new AtomicInteger();
+    private final AtomicBoolean deliveryQueued = new AtomicBoolean();
+    private final Runnable deliveryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            deliveryQueued.set(false);
+            CircledFrameLayout.ProgressListener target = listener;
+            if (target != null)
+                target.onProgressChanged(Float.intBitsToFloat(deliveryBits.get()));
+        }
+    };
+
+    private CircledFrameLayout.ProgressListener frameListener;
+    private float frameProgress;
+    private boolean frameScheduled = false;
+
+    void setListener(CircledFrameLayout.ProgressListener listener) {
+        this.listener = listener;
+        dispatched = false;
+        heldBack = false;
+    }
+
+    void setMinStep(float minStep) {
+        this.minStep = Math.max(minStep, 0);
+    }
+
+    void setMaxRate(int dispatchesPerSecond) {
+        minIntervalMillis = dispatchesPerSecond > 0 ? 1000 / dispatchesPerSecond : 0;
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    void setFrameListener(CircledFrameLayout.ProgressListener frameListener) {
+        this.frameListener = frameListener;
+        if (frameListener == null && frameScheduled) {
+            frameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    void onProgressChanged(float progress, boolean terminal) {
+        if (listener != null)
+            filter(progress, terminal);
+
+        if (frameListener != null) {
+            frameProgress = progress;
+            if (!frameScheduled) {
+                frameScheduled = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+    }
+
+    private void filter(float progress, boolean terminal) {
+        long now = SystemClock.uptimeMillis();
+        if (terminal) {
+            dispatch(progress, now);
+            return;
+        }
+        // run() delivers whatever came last, even a value the step would skip
+        if (pendingPosted) {
+            pending = progress;
+            return;
+        }
+        if (dispatched && Math.abs(progress - lastDispatched) < minStep) {
+            heldBack = true;
+            return;
+        }
+
+        long wait = dispatched ? lastDispatchMillis + minIntervalMillis - now : 0;
+        if (wait > 0) {
+            pending = progress;
+            pendingPosted = true;
+            heldBack = true;
+            handler.postDelayed(this, wait);
+            return;
+        }
+        dispatch(progress, now);
+    }
+
+    /**
+     * Delivers the resting value right away if the step or the rate limit held back the last
+     * value, called when animations reach their end value.
+     */
+    void onProgressRest(float progress) {
+        if (listener != null && heldBack)
+            dispatch(progress, SystemClock.uptimeMillis());
+    }
+
+    private void dispatch(float progress, long now) {
+        if (pendingPosted) {
+            pendingPosted = false;
+            handler.removeCallbacks(this);
+        }
+        dispatched = true;
+        heldBack = false;
+        lastDispatched = progress;
+        lastDispatchMillis = now;
+
+        if (executor == null) {
+            listener.onProgressChanged(progress);
+        } else {
+            deliveryBits.set(Float.floatToIntBits(progress));
+            if (deliveryQueued.compareAndSet(false, true))
+                executor.execute(deliveryRunnable);
+        }
+    }
+
+    @Override
+    public void run() {
+        handler.removeCallbacks(this);
+        pendingPosted = false;
+        if (listener != null && (!dispatched || pending != lastDispatched))
+            dispatch(pending, SystemClock.uptimeMillis());
+        else
+            heldBack = false;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (frameListener != null)
+            frameListener.onProgressChanged(frameProgress);
+    }
+
+    /**
+     * Delivers the value held back by the rate limit and the pending frame value right away and
+     * removes their callbacks, e.g. when the view is hidden.
+     */
+    void flush() {
+        if (pendingPosted)
+            run();
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            doFrame(0);
+        }
+    }
+
+    /**
+     * Drops held back and frame deliveries, e.g. when the view is rebound.
+     */
+    void cancel() {
+        heldBack = false;
+        if (pendingPosted) {
+            pendingPosted = false;
+            handler.removeCallbacks(this);
+        }
+        if (frameScheduled) {
+            frameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ivjukic.circledframelayout;
+
+import java.util.Arrays;
+
+/**
+ * Keeps progress, last final progress and selection for many rows in primitive arrays. Bind a
+ * recycled {@link CircledFrameLayout} to a row with {@link CircledFrameLayout#bind(ProgressStateStore, int)},
+ * the view applies the stored state instantly and writes its own state back when it is rebound.
+ */
+public class ProgressStateStore {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] progress;
+    private int[] lastProgress;
+    private boolean[] selected;
+
+    public ProgressStateStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ProgressStateStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        progress = new float[capacity];
+        lastProgress = new int[capacity];
+        selected = new boolean[capacity];
+        Arrays.fill(lastProgress, CircledFrameLayout.MIN_PROGRESS);
+    }
+
+    public void ensureCapacity(int capacity) {
+        int oldCapacity = progress.length;
+        if (capacity <= oldCapacity)
+            return;
+        int newCapacity = Math.max(capacity, oldCapacity * 2);
+        progress = Arrays.copyOf(progress, newCapacity);
+        lastProgress = Arrays.copyOf(lastProgress, newCapacity);
+        selected = Arrays.copyOf(selected, newCapacity);
+        Arrays.fill(lastProgress, oldCapacity, newCapacity, CircledFrameLayout.MIN_PROGRESS);
+    }
+
+    public int getCapacity() {
+        return progress.length;
+    }
+
+    public float getProgress(int position) {
+        return position < progress.length ? progress[position] : CircledFrameLayout.MIN_PROGRESS;
+    }
+
+    public int getLastProgress(int position) {
+        return position < lastProgress.length ? lastProgress[position] : CircledFrameLayout.MIN_PROGRESS;
+    }
+
+    public boolean isSelected(int position) {
+        return position < selected.length && selected[position];
+    }
+
+    /**
+     * Stores the progress of a row, the last final progress is updated the same way
+     * {@link CircledFrameLayout#setProgress(float)} does it.
+     */
+    public void setProgress(int position, float value) {
+        ensureCapacity(position + 1);
+        if (value <= CircledFrameLayout.MIN_PROGRESS) {
+            progress[position] = CircledFrameLayout.MIN_PROGRESS;
+            lastProgress[position] = CircledFrameLayout.MIN_PROGRESS;
+        } else if (value >= CircledFrameLayout.MAX_PROGRESS) {
+            progress[position] = CircledFrameLayout.MAX_PROGRESS;
+            lastProgress[position] = CircledFrameLayout.MAX_PROGRESS;
+        } else {
+            progress[position] = value;
+        }
+    }
+
+    public void setSelected(int position, boolean value) {
+        ensureCapacity(position + 1);
+        selected[position] = value;
+    }
+
+    public void set(int position, float progressValue, int lastProgressValue, boolean selectedValue) {
+        ensureCapacity(position + 1);
+        progress[position] = progressValue;
+        lastProgress[position] = lastProgressValue;
+        selected[position] = selectedValue;
+    }
+}
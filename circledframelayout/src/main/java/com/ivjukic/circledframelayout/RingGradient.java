@@ -0,0 +1,65 @@
+package com.ivjukic.circledframelayout;
+
+import android.graphics.Matrix;
+import android.graphics.Shader;
+import android.graphics.SweepGradient;
+
+import java.util.Arrays;
+
+/**
+ * Sweep gradient of the foreground arc. The shader is only rebuilt when the ring center or the
+ * colors change and the start angle only rotates its local matrix, so progress frames draw with the
+ * same shader instance.
+ */
+final class RingGradient {
+
+    private final Matrix matrix = new Matrix();
+    private int[] colors;
+    private SweepGradient shader;
+    private float centerX;
+    private float centerY;
+    private int startAngle;
+
+    /**
+     * Null or an empty array removes the gradient, a single color is drawn as a solid sweep.
+     */
+    void setColors(int[] colors) {
+        if (colors == null || colors.length == 0) {
+            this.colors = null;
+        } else if (colors.length == 1) {
+            this.colors = new int[]{colors[0], colors[0]};
+        } else {
+            this.colors = Arrays.copyOf(colors, colors.length);
+        }
+        shader = null;
+    }
+
+    boolean isEnabled() {
+        return colors != null;
+    }
+
+    /**
+     * Returns the shader for the ring center and start angle, null when no colors are set. The
+     * gradient starts at the start angle and goes clockwise around the full circle, so the arc
+     * reveals more of it as progress grows.
+     */
+    Shader update(float centerX, float centerY, int startAngle) {
+        if (colors == null)
+            return null;
+        if (shader == null || centerX != this.centerX || centerY != this.centerY) {
+            shader = new SweepGradient(centerX, centerY, colors, null);
+            this.centerX = centerX;
+            this.centerY = centerY;
+            rotate(startAngle);
+        } else if (startAngle != this.startAngle) {
+            rotate(startAngle);
+        }
+        return shader;
+    }
+
+    private void rotate(int startAngle) {
+        this.startAngle = startAngle;
+        matrix.setRotate(startAngle, centerX, centerY);
+        shader.setLocalMatrix(matrix);
+    }
+}
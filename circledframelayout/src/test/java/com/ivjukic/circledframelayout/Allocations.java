@@ -0,0 +1,33 @@
+package com.ivjukic.circledframelayout;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Counts the heap bytes allocated by the test thread while running an action.
+ */
+final class Allocations {
+
+    static final int ITERATIONS = 1000;
+
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    /**
+     * Runs the action {@link #ITERATIONS} times to settle lazy state and grown collections, then
+     * returns the bytes allocated by {@link #ITERATIONS} more runs.
+     */
+    static long measure(Runnable action) {
+        for (int i = 0; i < ITERATIONS; i++)
+            action.run();
+
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++)
+            action.run();
+        return THREADS.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,242 @@
+package com.ivjukic.circledframelayout;
+
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocation regression tests for the hot paths of {@link CircledFrameLayout}.
+ *
+ * Robolectric shadows allocate on their own (invalidate, handler messages), so every steady state
+ * path is compared with a stock view doing the same framework calls. The layout passes when it
+ * allocates less than one byte per iteration on top of that reference, any object created per call
+ * fails the test.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class CircledFrameLayoutAllocationTest {
+
+    private static final int SIZE = 200;
+    private static final long ANIMATION_DURATION = 10000;
+
+    private CircledFrameLayout layout;
+    private FrameLayout reference;
+    private View referenceChild;
+    private Handler referenceHandler;
+    private CountingCanvas canvas;
+
+    private MotionEvent down;
+    private MotionEvent move;
+    private MotionEvent up;
+    private MotionEvent cancel;
+
+    private int step;
+    private Object sink;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        layout = new CircledFrameLayout(context);
+        layout.addView(new View(context));
+        layOut(layout);
+
+        // same shape as the layout: one content child and the ring child
+        reference = new FrameLayout(context);
+        referenceChild = new View(context);
+        reference.addView(new View(context));
+        reference.addView(referenceChild);
+        layOut(reference);
+
+        referenceHandler = new Handler(Looper.getMainLooper());
+        canvas = new CountingCanvas();
+
+        long now = SystemClock.uptimeMillis();
+        down = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, SIZE / 2f, SIZE / 2f, 0);
+        move = MotionEvent.obtain(now, now, MotionEvent.ACTION_MOVE, SIZE / 2f + 1, SIZE / 2f, 0);
+        up = MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, SIZE / 2f + 1, SIZE / 2f, 0);
+        cancel = MotionEvent.obtain(now, now, MotionEvent.ACTION_CANCEL, SIZE / 2f + 1, SIZE / 2f, 0);
+    }
+
+    @After
+    public void tearDown() {
+        layout.engine.cancelAll();
+        down.recycle();
+        move.recycle();
+        up.recycle();
+        cancel.recycle();
+    }
+
+    private static void layOut(View view) {
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, SIZE, SIZE);
+    }
+
+    private static void assertNoAllocations(String path, Runnable action, Runnable reference) {
+        long allocated = Allocations.measure(action);
+        long expected = Allocations.measure(reference);
+        assertTrue(path + " allocated " + allocated + " bytes, the reference " + expected,
+                allocated - expected < Allocations.ITERATIONS);
+    }
+
+    // bytes of a single animator, the per gesture budget
+    private long animatorBytes() {
+        return Allocations.measure(new Runnable() {
+            @Override
+            public void run() {
+                sink = ValueAnimator.ofFloat(0f, 1f);
+            }
+        }) / Allocations.ITERATIONS;
+    }
+
+    @Test
+    public void setProgress_doesNotAllocate() {
+        assertNoAllocations("setProgress", new Runnable() {
+            @Override
+            public void run() {
+                layout.setProgress(step++ % 100);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                referenceChild.invalidate();
+            }
+        });
+    }
+
+    @Test
+    public void draw_doesNotAllocate() {
+        layout.setProgress(40);
+        canvas.reset();
+        layout.draw(canvas);
+        assertTrue("ring was not drawn", canvas.arcs > 0);
+
+        assertNoAllocations("draw", new Runnable() {
+            @Override
+            public void run() {
+                layout.setProgress(step++ % 100);
+                layout.draw(canvas);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                referenceChild.invalidate();
+                reference.draw(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void tap_doesNotAllocate() {
+        final Runnable referenceCallback = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        assertNoAllocations("tap", new Runnable() {
+            @Override
+            public void run() {
+                layout.onTouchEvent(down);
+                layout.onTouchEvent(move);
+                layout.onTouchEvent(up);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                referenceHandler.removeCallbacks(referenceCallback);
+                referenceHandler.postDelayed(referenceCallback, CircledGestureDetector.DEFAULT_LONG_PRESS_TIMEOUT);
+                referenceHandler.removeCallbacks(referenceCallback);
+            }
+        });
+    }
+
+    @Test
+    public void animationFrames_doNotAllocate() {
+        layout.setProgressAnimate(100, true, 0, ANIMATION_DURATION);
+        final ValueAnimator animator = layout.engine.progressAnimator;
+        assertTrue(animator.isRunning());
+
+        final ValueAnimator referenceAnimator = ValueAnimator.ofFloat(0f, 1f);
+        referenceAnimator.setDuration(ANIMATION_DURATION);
+        referenceAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                referenceChild.invalidate();
+            }
+        });
+        referenceAnimator.start();
+
+        try {
+            assertNoAllocations("animation frame", new Runnable() {
+                @Override
+                public void run() {
+                    animator.setCurrentFraction((step++ % 100) / 100f);
+                    layout.draw(canvas);
+                }
+            }, new Runnable() {
+                @Override
+                public void run() {
+                    referenceAnimator.setCurrentFraction((step++ % 100) / 100f);
+                    reference.draw(canvas);
+                }
+            });
+        } finally {
+            referenceAnimator.cancel();
+        }
+    }
+
+    @Test
+    public void longPressGesture_reusesAnimators() {
+        long budget = animatorBytes();
+        long perGesture = Allocations.measure(new Runnable() {
+            @Override
+            public void run() {
+                layout.onTouchEvent(down);
+                // the long press timeout, without advancing the looper
+                layout.gestureDetector.run();
+                layout.onTouchEvent(up);
+                layout.engine.cancelAll();
+            }
+        }) / Allocations.ITERATIONS;
+
+        assertTrue("long press allocated " + perGesture + " bytes per gesture, one animator is " + budget,
+                perGesture < budget);
+    }
+
+    @Test
+    public void fakeScaleGesture_reusesAnimators() {
+        layout.setJustScale(true);
+        long budget = animatorBytes();
+        long perGesture = Allocations.measure(new Runnable() {
+            @Override
+            public void run() {
+                layout.onTouchEvent(down);
+                layout.gestureDetector.run();
+                layout.onTouchEvent(step++ % 2 == 0 ? up : cancel);
+                layout.engine.cancelAll();
+            }
+        }) / Allocations.ITERATIONS;
+
+        assertTrue("fake scale allocated " + perGesture + " bytes per gesture, one animator is " + budget,
+                perGesture < budget);
+    }
+}
@@ -0,0 +1,759 @@
+package com.ivjukic.circledframelayout;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.ContextThemeWrapper;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewOutlineProvider;
+import android.view.animation.AlphaAnimation;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Behaviour tests of {@link CircledFrameLayout}: what the ring draws, when it invalidates and what
+ * listeners, gestures, tracks, the shared scheduler and suspension do. The main looper is paused,
+ * delayed callbacks and frames only run when a test idles it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class CircledFrameLayoutTest {
+
+    private static final int SIZE = 200;
+    private static final long ANIMATION_DURATION = 10000;
+
+    private Context context;
+    private CircledFrameLayout layout;
+    private CountingCanvas canvas;
+    private final List<Float> values = new ArrayList<>();
+
+    private MotionEvent down;
+    private MotionEvent up;
+    private MotionEvent farMove;
+
+    private final CircledFrameLayout.ProgressListener recorder = new CircledFrameLayout.ProgressListener() {
+        @Override
+        public void onProgressChanged(float progress) {
+            values.add(progress);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        layout = new CircledFrameLayout(context);
+        layout.addView(new View(context));
+        layOut(layout);
+        canvas = new CountingCanvas();
+
+        long now = SystemClock.uptimeMillis();
+        down = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, SIZE / 2f, SIZE / 2f, 0);
+        up = MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, SIZE / 2f, SIZE / 2f, 0);
+        farMove = MotionEvent.obtain(now, now, MotionEvent.ACTION_MOVE, SIZE, SIZE, 0);
+    }
+
+    @After
+    public void tearDown() {
+        layout.engine.cancelAll();
+        CircledFrameLayout.setGlobalRenderMode(CircledFrameLayout.RENDER_MODE_DEFAULT);
+        CircledFrameLayout.setPowerSaverFrameRate(30);
+        CircledFrameLayout.setPowerSaverAntiAlias(false);
+        down.recycle();
+        up.recycle();
+        farMove.recycle();
+    }
+
+    private static void layOut(View view) {
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, SIZE, SIZE);
+    }
+
+    private static void idle(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+    }
+
+    // a window for the layouts, attaching registers with a scheduler and suspension follows visibility
+    private FrameLayout attach(CircledFrameLayout... layouts) {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        FrameLayout root = new FrameLayout(activity);
+        for (CircledFrameLayout child : layouts)
+            root.addView(child, new FrameLayout.LayoutParams(SIZE, SIZE));
+        activity.setContentView(root);
+        idle(0);
+        return root;
+    }
+
+    private long invalidations() {
+        return layout.metrics.getInvalidationCount();
+    }
+
+    private void enableMetrics() {
+        layout.setMetricsListener(new CircledMetrics.Listener() {
+            @Override
+            public void onMetrics(CircledMetrics metrics) {
+            }
+        });
+    }
+
+    //Drawing
+
+    @Test
+    public void draw_sweepFollowsProgress() {
+        layout.setProgress(25);
+        layout.draw(canvas);
+        // inner fill and background stroke
+        assertEquals(2, canvas.ovals);
+        assertEquals(1, canvas.arcs);
+        assertEquals(90, canvas.sweeps[0], 1e-3f);
+
+        canvas.reset();
+        layout.setProgress(150);
+        layout.draw(canvas);
+        assertEquals(100, layout.getProgress(), 0);
+        assertEquals(360, canvas.sweeps[0], 1e-3f);
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.Q)
+    public void draw_replaysContentNodeOnHardwareCanvas() {
+        HardwareCanvas hardwareCanvas = new HardwareCanvas();
+        layout.setProgress(50);
+        layout.draw(hardwareCanvas);
+        assertEquals(1, hardwareCanvas.renderNodes);
+        assertEquals(180, hardwareCanvas.sweeps[0], 1e-3f);
+
+        // the content goes into the node, only the ring is drawn into the canvas itself
+        hardwareCanvas.reset();
+        layout.setProgress(75);
+        layout.draw(hardwareCanvas);
+        assertEquals(2, hardwareCanvas.renderNodes);
+        assertEquals(1, hardwareCanvas.ovals);
+        assertEquals(270, hardwareCanvas.sweeps[0], 1e-3f);
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.Q)
+    public void draw_rerecordsContentNodeForChildAnimationsAndInvalidate() {
+        CountingView child = new CountingView(context);
+        layout.addView(child);
+        layOut(layout);
+        HardwareCanvas hardwareCanvas = new HardwareCanvas();
+        layout.draw(hardwareCanvas);
+        int recorded = child.draws;
+        assertTrue("content was not recorded", recorded > 0);
+
+        // every frame of the animation is stepped while the content is recorded
+        AlphaAnimation animation = new AlphaAnimation(0f, 1f);
+        animation.setDuration(ANIMATION_DURATION);
+        child.startAnimation(animation);
+        layout.draw(hardwareCanvas);
+        layout.draw(hardwareCanvas);
+        assertEquals(recorded + 2, child.draws);
+
+        child.clearAnimation();
+        layout.draw(hardwareCanvas);
+        int afterAnimation = child.draws;
+        layout.invalidate();
+        layout.draw(hardwareCanvas);
+        assertEquals(afterAnimation + 1, child.draws);
+    }
+
+    //Clipping
+
+    @Test
+    public void outlineClipping_restoresAppOutline() {
+        CircledFrameLayout custom = new CircledFrameLayout(context);
+        custom.setClipMode(CircledFrameLayout.CLIP_MODE_PATH);
+        custom.setOutlineProvider(ViewOutlineProvider.BOUNDS);
+        custom.setClipMode(CircledFrameLayout.CLIP_MODE_AUTO);
+        layOut(custom);
+        assertNotSame(ViewOutlineProvider.BOUNDS, custom.getOutlineProvider());
+        assertTrue(custom.getClipToOutline());
+
+        // set while the circle clips, applied once it stops
+        custom.setOutlineProvider(ViewOutlineProvider.PADDED_BOUNDS);
+        custom.setClipMode(CircledFrameLayout.CLIP_MODE_PATH);
+        assertSame(ViewOutlineProvider.PADDED_BOUNDS, custom.getOutlineProvider());
+        assertFalse(custom.getClipToOutline());
+    }
+
+    //Styles
+
+    @Test
+    public void style_cachedPerThemeInstance() {
+        CircledStyle style = CircledStyle.obtain(context, 0);
+        assertSame(style, CircledStyle.obtain(context, 0));
+
+        // equal themes of two activities do not share an entry
+        Context first = new ContextThemeWrapper(context, android.R.style.Theme_Material);
+        Context second = new ContextThemeWrapper(context, android.R.style.Theme_Material);
+        assertNotSame(CircledStyle.obtain(first, 0), CircledStyle.obtain(second, 0));
+    }
+
+    @Test
+    public void style_resolvedAgainAfterConfigurationChange() {
+        CircledStyle day = CircledStyle.obtain(context, 0);
+        RuntimeEnvironment.setQualifiers("+night");
+        CircledStyle night = CircledStyle.obtain(context, 0);
+        assertNotSame(day, night);
+        assertSame(night, CircledStyle.obtain(context, 0));
+    }
+
+    //Invalidation
+
+    @Test
+    public void setProgress_belowThresholdDoesNotInvalidate() {
+        enableMetrics();
+        layout.setInvalidationThreshold(5);
+        layout.draw(canvas);
+        long before = invalidations();
+
+        // about 0.6 pixels on a 200 pixel ring
+        layout.setProgress(0.1f);
+        assertEquals(before, invalidations());
+
+        // measured from the last drawn value, small steps add up
+        layout.setProgress(1f);
+        assertEquals(before + 1, invalidations());
+
+        // the ends and the end of animations always redraw
+        layout.draw(canvas);
+        layout.setProgress(1.1f);
+        assertEquals(before + 1, invalidations());
+        layout.flushProgress();
+        assertEquals(before + 2, invalidations());
+        layout.setProgress(100);
+        assertEquals(before + 3, invalidations());
+    }
+
+    @Test
+    public void setProgress_zeroThresholdInvalidatesEveryChange() {
+        enableMetrics();
+        layout.setInvalidationThreshold(0);
+        long before = invalidations();
+        for (int i = 1; i <= 10; i++)
+            layout.setProgress(i / 100f);
+        assertEquals(before + 10, invalidations());
+    }
+
+    @Test
+    public void powerSaver_capsRedrawsAndRestoresAntiAlias() {
+        enableMetrics();
+        CircledFrameLayout.setPowerSaverFrameRate(10);
+        layout.setRenderMode(CircledFrameLayout.RENDER_MODE_POWER_SAVER);
+        idle(1000);
+        layout.draw(canvas);
+        assertTrue(canvas.arcAntiAlias);
+        long before = invalidations();
+
+        layout.setProgress(10);
+        assertEquals(before + 1, invalidations());
+        layout.draw(canvas);
+        assertFalse("strokes stay anti-aliased in motion", canvas.arcAntiAlias);
+
+        // within the 100 ms interval, drawn together by one delayed redraw
+        layout.setProgress(20);
+        layout.setProgress(30);
+        assertEquals(before + 1, invalidations());
+        idle(100);
+        assertEquals(before + 2, invalidations());
+
+        // once the progress rests the strokes are anti-aliased again
+        idle(100);
+        assertEquals(before + 3, invalidations());
+        layout.draw(canvas);
+        assertTrue(canvas.arcAntiAlias);
+        assertEquals(108, canvas.sweeps[0], 1e-3f);
+    }
+
+    @Test
+    public void defaultRenderMode_redrawsEveryChange() {
+        enableMetrics();
+        long before = invalidations();
+        layout.setProgress(10);
+        layout.setProgress(20);
+        assertEquals(before + 2, invalidations());
+    }
+
+    //Gestures
+
+    @Test
+    public void tap_doesNotAnimate() {
+        assertTrue(layout.onTouchEvent(down));
+        assertFalse(layout.onTouchEvent(up));
+        idle(1000);
+        assertFalse(layout.engine.isProgressRunning());
+        assertEquals(0, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void longPress_fillsTheRing() {
+        RecordingAnimationListener listener = new RecordingAnimationListener();
+        layout.setProgressAnimationListener(listener);
+
+        layout.onTouchEvent(down);
+        idle(CircledGestureDetector.DEFAULT_LONG_PRESS_TIMEOUT);
+        assertTrue(layout.engine.isProgressRunning());
+        assertEquals(1, listener.starts);
+
+        layout.engine.finishAll();
+        layout.onTouchEvent(up);
+        assertEquals(100, layout.getProgress(), 0);
+        assertEquals(100, listener.endProgress, 0);
+        assertTrue(listener.changed);
+    }
+
+    @Test
+    public void longPress_releasedEarlyReverts() {
+        layout.onTouchEvent(down);
+        layout.gestureDetector.run();
+        layout.engine.progressAnimator.setCurrentFraction(0.5f);
+        assertTrue(layout.getProgress() > 0);
+
+        layout.onTouchEvent(up);
+        layout.engine.finishAll();
+        assertEquals(0, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void moveOutsideSlop_cancelsLongPress() {
+        layout.onTouchEvent(down);
+        layout.onTouchEvent(farMove);
+        idle(1000);
+        assertFalse(layout.engine.isProgressRunning());
+        layout.onTouchEvent(up);
+        assertEquals(0, layout.getProgress(), 0);
+    }
+
+    //Tracks
+
+    @Test
+    public void tracks_drawAfterTheRing() {
+        int first = layout.addTrack(0xFFFF0000, 4, 10);
+        int second = layout.addTrack(0xFF00FF00, 4, 10);
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals(2, layout.getTrackCount());
+
+        layout.setProgress(50);
+        layout.setTrackProgress(first, 25);
+        layout.setTrackProgress(second, 150);
+        assertEquals(100, layout.getTrackProgress(second), 0);
+
+        layout.draw(canvas);
+        assertEquals(3, canvas.arcs);
+        assertEquals(180, canvas.sweeps[0], 1e-3f);
+        assertEquals(90, canvas.sweeps[1], 1e-3f);
+        assertEquals(360, canvas.sweeps[2], 1e-3f);
+
+        // empty tracks are skipped
+        canvas.reset();
+        layout.setTrackProgress(first, 0);
+        layout.draw(canvas);
+        assertEquals(2, canvas.arcs);
+    }
+
+    @Test
+    public void tracks_rejectUnknownIndices() {
+        layout.addTrack(0xFFFF0000, 4, 10);
+        assertTrackIndexRejected(1);
+        assertTrackIndexRejected(-1);
+
+        // the arrays keep their capacity after clearing
+        layout.clearTracks();
+        assertEquals(0, layout.getTrackCount());
+        assertTrackIndexRejected(0);
+    }
+
+    private void assertTrackIndexRejected(int index) {
+        try {
+            layout.setTrackProgress(index, 10);
+            fail("track " + index + " was accepted");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    //Scheduler
+
+    @Test
+    public void scheduler_registersOnlyWhileAttached() {
+        CircledAnimationScheduler scheduler = new CircledAnimationScheduler();
+        layout.setAnimationScheduler(scheduler);
+        assertEquals(0, scheduler.getRegisteredCount());
+
+        FrameLayout root = attach(layout);
+        assertEquals(1, scheduler.getRegisteredCount());
+
+        root.removeView(layout);
+        assertEquals(0, scheduler.getRegisteredCount());
+        root.addView(layout);
+        assertEquals(1, scheduler.getRegisteredCount());
+
+        layout.setAnimationScheduler(null);
+        assertEquals(0, scheduler.getRegisteredCount());
+    }
+
+    @Test
+    public void scheduler_drivesProgressAnimations() {
+        CircledAnimationScheduler scheduler = new CircledAnimationScheduler();
+        layout.setAnimationScheduler(scheduler);
+        attach(layout);
+
+        layout.setProgressAnimate(60, true, 0, 200);
+        assertFalse("the engine ran the animation", layout.engine.isProgressRunning());
+        assertEquals(1, scheduler.getRunningCount());
+
+        idle(500);
+        assertEquals(0, scheduler.getRunningCount());
+        assertEquals(60, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void scheduler_defersRemovalDuringFrame() {
+        final CircledAnimationScheduler scheduler = new CircledAnimationScheduler();
+        final CircledFrameLayout other = new CircledFrameLayout(context);
+        layout.setAnimationScheduler(scheduler);
+        other.setAnimationScheduler(scheduler);
+        final FrameLayout root = attach(layout, other);
+        assertEquals(2, scheduler.getRegisteredCount());
+
+        // the first slot detaches the second one from within a frame
+        layout.setProgressListener(new CircledFrameLayout.ProgressListener() {
+            @Override
+            public void onProgressChanged(float progress) {
+                if (other.getParent() != null)
+                    root.removeView(other);
+            }
+        });
+        layout.setProgressAnimate(60, true, 0, 200);
+        other.setProgressAnimate(40, true, 0, 200);
+
+        idle(500);
+        assertEquals(1, scheduler.getRegisteredCount());
+        assertEquals(0, scheduler.getRunningCount());
+        assertEquals(60, layout.getProgress(), 0);
+
+        // the remaining layout still owns a working slot
+        layout.setProgressAnimate(20, true, 0, 200);
+        idle(500);
+        assertEquals(20, layout.getProgress(), 0);
+    }
+
+    //Suspension
+
+    @Test
+    public void hidden_pausesAndResumesAtTheEnd() {
+        attach(layout);
+        layout.setProgressAnimate(80, true, 0, ANIMATION_DURATION);
+        idle(100);
+        assertTrue(layout.engine.isProgressRunning());
+
+        layout.setVisibility(View.INVISIBLE);
+        assertTrue(layout.engine.progressAnimator.isPaused());
+
+        layout.setVisibility(View.VISIBLE);
+        assertFalse(layout.engine.progressAnimator.isStarted());
+        assertEquals(80, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void hidden_jumpsStraightToNewProgress() {
+        attach(layout);
+        layout.setVisibility(View.GONE);
+        layout.setProgressAnimate(40, true, 0, ANIMATION_DURATION);
+        assertFalse(layout.engine.isProgressRunning());
+        assertEquals(40, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void hidden_dropsPendingLongPress() {
+        attach(layout);
+        layout.onTouchEvent(down);
+        layout.setVisibility(View.INVISIBLE);
+        layout.setVisibility(View.VISIBLE);
+        idle(1000);
+        assertFalse(layout.engine.isProgressRunning());
+        assertEquals(0, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void hidden_cancelsFiredLongPress() {
+        RecordingAnimationListener listener = new RecordingAnimationListener();
+        layout.setProgressAnimationListener(listener);
+        attach(layout);
+        layout.onTouchEvent(down);
+        idle(CircledGestureDetector.DEFAULT_LONG_PRESS_TIMEOUT);
+        assertTrue(layout.engine.isProgressRunning());
+
+        // the toggle is not completed, the ring goes back to the last final progress
+        layout.setVisibility(View.INVISIBLE);
+        layout.setVisibility(View.VISIBLE);
+        assertFalse(layout.engine.isProgressRunning());
+        assertEquals(0, layout.getProgress(), 0);
+        assertEquals(0, listener.endProgress, 0);
+        assertFalse(listener.changed);
+
+        layout.onTouchEvent(up);
+        idle(1000);
+        assertEquals(0, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void hidden_cancelsFiredFakeScale() {
+        RecordingAnimationListener listener = new RecordingAnimationListener();
+        layout.setProgressAnimationListener(listener);
+        layout.setJustScale(true);
+        attach(layout);
+        layout.onTouchEvent(down);
+        idle(CircledGestureDetector.DEFAULT_LONG_PRESS_TIMEOUT);
+
+        layout.setVisibility(View.INVISIBLE);
+        assertEquals(1, listener.disabledCanceled);
+        layout.setVisibility(View.VISIBLE);
+        assertEquals(1, layout.getScaleX(), 0);
+    }
+
+    @Test
+    public void hidden_finishesPublicAnimationsRightAway() {
+        attach(layout);
+        layout.setVisibility(View.INVISIBLE);
+
+        layout.animateProgress(0, 70, ANIMATION_DURATION);
+        assertFalse(layout.engine.isProgressRunning());
+        assertEquals(70, layout.getProgress(), 0);
+
+        layout.scaleUp();
+        assertFalse(layout.engine.pressAnimator.isStarted());
+        assertTrue(layout.getScaleX() > 1);
+        layout.scaleDown();
+        assertEquals(1, layout.getScaleX(), 0);
+    }
+
+    @Test
+    public void hidden_deliversHeldBackListenerValue() {
+        attach(layout);
+        layout.setProgressListener(recorder);
+        layout.setProgressListenerMaxRate(10);
+        layout.setProgress(10);
+        layout.setProgress(20);
+        assertEquals(1, values.size());
+
+        layout.setVisibility(View.INVISIBLE);
+        assertEquals(2, values.size());
+        assertEquals(20, values.get(1), 0);
+        idle(1000);
+        assertEquals(2, values.size());
+    }
+
+    //Progress listeners
+
+    @Test
+    public void listener_skipsSmallSteps() {
+        layout.setProgressListener(recorder);
+        layout.setProgressListenerStep(10);
+        for (int i = 1; i <= 12; i++)
+            layout.setProgress(i);
+        layout.setProgress(100);
+
+        assertEquals(3, values.size());
+        assertEquals(1, values.get(0), 0);
+        assertEquals(11, values.get(1), 0);
+        assertEquals(100, values.get(2), 0);
+    }
+
+    @Test
+    public void listener_getsRestingValueSkippedByStep() {
+        layout.setProgressAnimate(10, false, 0, 0);
+        layout.setProgressListener(recorder);
+        layout.setProgressListenerStep(10);
+        layout.setProgress(10);
+
+        layout.setProgressAnimate(15, true, 0, ANIMATION_DURATION);
+        layout.engine.finishAll();
+        assertEquals(15, values.get(values.size() - 1), 0);
+    }
+
+    @Test
+    public void listener_getsRestingValueFromScheduler() {
+        layout.setAnimationScheduler(new CircledAnimationScheduler());
+        attach(layout);
+        layout.setProgressAnimate(10, false, 0, 0);
+        layout.setProgressListener(recorder);
+        layout.setProgressListenerStep(10);
+        layout.setProgress(10);
+
+        layout.setProgressAnimate(15, true, 0, 200);
+        idle(500);
+        assertEquals(15, values.get(values.size() - 1), 0);
+    }
+
+    @Test
+    public void listener_restDeliversOnlyHeldBackValues() {
+        attach(layout);
+        layout.setProgressListener(recorder);
+        layout.setProgress(10);
+        assertEquals(1, values.size());
+
+        layout.setVisibility(View.INVISIBLE);
+        layout.setVisibility(View.VISIBLE);
+        assertEquals(1, values.size());
+    }
+
+    @Test
+    public void bind_doesNotNotifyListenerOfCanceledAnimation() {
+        ProgressStateStore store = new ProgressStateStore();
+        store.setProgress(0, 60);
+        layout.setProgressAnimate(10, false, 0, 0);
+        layout.setProgressListener(recorder);
+        layout.setProgressListenerStep(10);
+        layout.setProgress(10);
+
+        layout.setProgressAnimate(15, true, 0, ANIMATION_DURATION);
+        layout.engine.progressAnimator.setCurrentFraction(0.5f);
+        layout.bind(store, 0);
+        assertEquals(1, values.size());
+        assertEquals(60, layout.getProgress(), 0);
+    }
+
+    @Test
+    public void listener_rateLimitDeliversLatestValue() {
+        layout.setProgressListener(recorder);
+        layout.setProgressListenerStep(10);
+        layout.setProgressListenerMaxRate(10);
+        layout.setProgress(10);
+        layout.setProgress(25);
+        // within the step of the last delivery, still replaces the held back value
+        layout.setProgress(12);
+        assertEquals(1, values.size());
+
+        idle(100);
+        assertEquals(2, values.size());
+        assertEquals(12, values.get(1), 0);
+    }
+
+    @Test
+    public void listener_executorGetsOneQueuedDelivery() {
+        final List<Runnable> queued = new ArrayList<>();
+        layout.setProgressListener(recorder);
+        layout.setProgressListenerExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        });
+        layout.setProgress(10);
+        layout.setProgress(20);
+        layout.setProgress(30);
+        assertEquals(1, queued.size());
+        assertTrue(values.isEmpty());
+
+        queued.get(0).run();
+        assertEquals(1, values.size());
+        assertEquals(30, values.get(0), 0);
+    }
+
+    @Test
+    public void frameListener_getsLastValueOfFrame() {
+        layout.setFrameProgressListener(recorder);
+        layout.setProgress(10);
+        layout.setProgress(20);
+        layout.setProgress(30);
+        assertTrue(values.isEmpty());
+
+        idle(100);
+        assertEquals(1, values.size());
+        assertEquals(30, values.get(0), 0);
+    }
+
+    private static final class RecordingAnimationListener implements CircledFrameLayout.ProgressAnimationListener {
+        int starts;
+        float endProgress = -1;
+        boolean changed;
+        int disabledCanceled;
+
+        @Override
+        public void onAnimationStart() {
+            starts++;
+        }
+
+        @Override
+        public void onAnimationEnd(float progress, boolean hasProgressChanged) {
+            endProgress = progress;
+            changed = hasProgressChanged;
+        }
+
+        @Override
+        public void onDisabledActionStart() {
+        }
+
+        @Override
+        public void onDisabledActionEnd() {
+        }
+
+        @Override
+        public void onDisabledActionCanceled() {
+            disabledCanceled++;
+        }
+    }
+
+    private static final class CountingView extends View {
+        int draws;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            draws++;
+        }
+    }
+
+    // hardware accelerated from the point of view of the layout, render nodes are only counted
+    @TargetApi(Build.VERSION_CODES.Q)
+    private static final class HardwareCanvas extends CountingCanvas {
+        int renderNodes;
+
+        @Override
+        public boolean isHardwareAccelerated() {
+            return true;
+        }
+
+        @Override
+        public void drawRenderNode(RenderNode renderNode) {
+            renderNodes++;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ivjukic.circledframelayout;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Path;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Software canvas that only counts the draw calls it receives and records the sweep angles of the
+ * first arcs. Nothing reaches the shadowed native canvas, so drawing into it does not allocate on
+ * its own.
+ */
+class CountingCanvas extends Canvas {
+
+    int ovals;
+    int arcs;
+    int circles;
+    int paths;
+    // in draw order, the main ring comes first and the tracks after it
+    final float[] sweeps = new float[8];
+    boolean arcAntiAlias;
+    private int saveCount = 1;
+
+    void reset() {
+        ovals = 0;
+        arcs = 0;
+        circles = 0;
+        paths = 0;
+    }
+
+    @Override
+    public void drawOval(RectF oval, Paint paint) {
+        ovals++;
+    }
+
+    @Override
+    public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
+        if (arcs < sweeps.length)
+            sweeps[arcs] = sweepAngle;
+        arcAntiAlias = paint.isAntiAlias();
+        arcs++;
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        circles++;
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        paths++;
+    }
+
+    @Override
+    public int save() {
+        return saveCount++;
+    }
+
+    @Override
+    public void restore() {
+        saveCount--;
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        this.saveCount = saveCount;
+    }
+
+    @Override
+    public int getSaveCount() {
+        return saveCount;
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+    }
+
+    @Override
+    public void scale(float sx, float sy) {
+    }
+
+    @Override
+    public void concat(Matrix matrix) {
+    }
+
+    @Override
+    public boolean clipPath(Path path) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(int left, int top, int right, int bottom) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(Rect rect) {
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(RectF rect) {
+        return true;
+    }
+}